@@ -0,0 +1,117 @@
+package sbt_inc;
+
+import com.typesafe.zinc.Inputs;
+import sbt.inc.Analysis;
+import scala.Option;
+import scala.Tuple2;
+import scala.collection.immutable.Map;
+
+import java.io.File;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Analysis of the classpath entries, loaded on the first lookup of an entry (zinc loads the analysis of every entry
+ * when the inputs are created, even when the compilation doesn't need them: no change of the api of the upstream
+ * modules, no dependency to some entries,...).
+ *
+ * An analysis is read through the analysis cache of zinc (shared by the modules compiled in the same JVM, keyed by
+ * the fingerprint of the file and bounded by the "zinc.analysis.cache.limit" system property), so the analysis of an
+ * upstream module is only deserialized once per build.
+ *
+ * The compiler only calls get(), so the map is a proxy of the scala Map interface: get() is lazy, other calls
+ * (display of the inputs in debug) are delegated to a map of every analysis.
+ */
+class LazyAnalysisMap implements InvocationHandler {
+
+    private final List<File> classpath;
+    private final File classesDirectory;
+    private final Map<File, File> cacheMap;
+    private final java.util.Map<File, Analysis> loaded = new HashMap<File, Analysis>();
+
+    /**
+     * @param classpath the (absolute) classpath entries
+     * @param cacheMap analysis cache file of the classes directories of the reactor
+     */
+    @SuppressWarnings("unchecked")
+    static Map<File, Analysis> create(List<File> classpath, File classesDirectory, java.util.Map<File, File> cacheMap) {
+        return (Map<File, Analysis>) Proxy.newProxyInstance(LazyAnalysisMap.class.getClassLoader(), new Class<?>[]{Map.class}, new LazyAnalysisMap(classpath, classesDirectory, cacheMap));
+    }
+
+    /**
+     * @return the handler of a map created by {@link #create}
+     */
+    static LazyAnalysisMap handlerOf(Map<File, Analysis> map) {
+        return (LazyAnalysisMap) Proxy.getInvocationHandler(map);
+    }
+
+    private LazyAnalysisMap(List<File> classpath, File classesDirectory, java.util.Map<File, File> cacheMap) {
+        this.classpath = classpath;
+        this.classesDirectory = classesDirectory;
+        Map<File, File> m = scala.collection.immutable.Map$.MODULE$.empty();
+        for (java.util.Map.Entry<File, File> entry : cacheMap.entrySet()) {
+            m = m.$plus(new Tuple2<File, File>(entry.getKey(), entry.getValue()));
+        }
+        this.cacheMap = m;
+    }
+
+    /**
+     * @return the number of analysis loaded so far
+     */
+    synchronized int loadedCount() {
+        return loaded.size();
+    }
+
+    synchronized Option<Analysis> get(File file) {
+        if (!classpath.contains(file)) {
+            return Option.empty();
+        }
+        Analysis back = loaded.get(file);
+        if (back == null) {
+            back = Inputs.analysisFor(file, classesDirectory, cacheMap);
+            loaded.put(file, back);
+        }
+        return Option.apply(back);
+    }
+
+    private Map<File, Analysis> toMap() {
+        Map<File, Analysis> back = scala.collection.immutable.Map$.MODULE$.empty();
+        for (File file : classpath) {
+            back = back.$plus(new Tuple2<File, Analysis>(file, get(file).get()));
+        }
+        return back;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        String name = method.getName();
+        int nbArgs = (args == null) ? 0 : args.length;
+        if ("get".equals(name) && nbArgs == 1) {
+            return (args[0] instanceof File) ? get((File) args[0]) : Option.empty();
+        }
+        if ("contains".equals(name) && nbArgs == 1) {
+            return classpath.contains(args[0]);
+        }
+        if ("size".equals(name) && nbArgs == 0) {
+            return classpath.size();
+        }
+        if ("isEmpty".equals(name) && nbArgs == 0) {
+            return classpath.isEmpty();
+        }
+        if ("equals".equals(name) && nbArgs == 1) {
+            return proxy == args[0];
+        }
+        if ("hashCode".equals(name) && nbArgs == 0) {
+            return System.identityHashCode(proxy);
+        }
+        try {
+            return method.invoke(toMap(), args);
+        } catch (InvocationTargetException exc) {
+            throw exc.getCause();
+        }
+    }
+}
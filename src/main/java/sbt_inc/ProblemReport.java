@@ -0,0 +1,86 @@
+package sbt_inc;
+
+import org.codehaus.plexus.util.IOUtil;
+import org.codehaus.plexus.util.WriterFactory;
+import org.codehaus.plexus.util.xml.PrettyPrintXMLWriter;
+import org.codehaus.plexus.util.xml.XMLWriter;
+import xsbti.Position;
+import xsbti.Problem;
+import xsbti.Severity;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes the problems of a failed compilation in the checkstyle xml format (read by most CI and IDE tools):
+ * &lt;checkstyle&gt;&lt;file name="..."&gt;&lt;error line="" column="" severity="" message="" source=""/&gt;...
+ */
+class ProblemReport {
+
+    private static final String SOURCE = "scalac";
+
+    /**
+     * @return the report file associated to an analysis cache file
+     */
+    static File reportFileOf(File cacheFile) {
+        return new File(cacheFile.getPath() + "-problems.xml");
+    }
+
+    static void write(File file, Problem[] problems) throws IOException {
+        Map<String, List<Problem>> byFile = new LinkedHashMap<String, List<Problem>>();
+        for (Problem problem : problems) {
+            Position pos = problem.position();
+            String path = pos.sourcePath().isDefined() ? pos.sourcePath().get() : "";
+            List<Problem> l = byFile.get(path);
+            if (l == null) {
+                l = new ArrayList<Problem>();
+                byFile.put(path, l);
+            }
+            l.add(problem);
+        }
+        file.getParentFile().mkdirs();
+        Writer w = WriterFactory.newXmlWriter(file);
+        try {
+            XMLWriter xml = new PrettyPrintXMLWriter(w);
+            xml.startElement("checkstyle");
+            for (Map.Entry<String, List<Problem>> e : byFile.entrySet()) {
+                xml.startElement("file");
+                xml.addAttribute("name", e.getKey());
+                for (Problem problem : e.getValue()) {
+                    Position pos = problem.position();
+                    xml.startElement("error");
+                    if (pos.line().isDefined()) {
+                        xml.addAttribute("line", String.valueOf(pos.line().get()));
+                    }
+                    if (pos.pointer().isDefined()) {
+                        // checkstyle columns start at 1
+                        xml.addAttribute("column", String.valueOf(pos.pointer().get() + 1));
+                    }
+                    xml.addAttribute("severity", severityOf(problem.severity()));
+                    xml.addAttribute("message", problem.message());
+                    xml.addAttribute("source", SOURCE);
+                    xml.endElement();
+                }
+                xml.endElement();
+            }
+            xml.endElement();
+        } finally {
+            IOUtil.close(w);
+        }
+    }
+
+    private static String severityOf(Severity severity) {
+        if (severity == Severity.Error) {
+            return "error";
+        }
+        if (severity == Severity.Warn) {
+            return "warning";
+        }
+        return "info";
+    }
+}
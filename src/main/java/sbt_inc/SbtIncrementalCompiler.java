@@ -5,11 +5,14 @@ import com.typesafe.zinc.*;
 import org.apache.maven.plugin.logging.Log;
 import org.apache.maven.toolchain.Toolchain;
 import scala.Option;
+import scala.collection.JavaConversions;
 import scala_maven_executions.MainHelper;
 import util.JavaLocator;
 
 import java.io.File;
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
@@ -38,11 +41,33 @@ public class SbtIncrementalCompiler {
 
     private List<String> extraArgs;
 
+    private File xsbtiJar;
+
+    private File interfaceJar;
+
+    private boolean embeddedServer;
+
     private xsbti.Logger logger;
 
     private Compiler compiler;
 
+    private List<String> serverArguments;
+
+    /**
+     * Weak reference: the map of a session is released with the session.
+     */
+    private static WeakReference<Map<File, File>> lastCacheMap;
+
+    private static String lastCacheMapString;
+
     public SbtIncrementalCompiler(boolean useZincServer, int zincPort, File libraryJar, File compilerJar, List<File> extraJars, File xsbtiJar, File interfaceJar, Log l, List<String> args) throws Exception {
+        this(useZincServer, false, zincPort, libraryJar, compilerJar, extraJars, xsbtiJar, interfaceJar, l, args);
+    }
+
+    /**
+     * @param embeddedServer true if the zinc server was started by the plugin (then it uses the sbt jars of the plugin)
+     */
+    public SbtIncrementalCompiler(boolean useZincServer, boolean embeddedServer, int zincPort, File libraryJar, File compilerJar, List<File> extraJars, File xsbtiJar, File interfaceJar, Log l, List<String> args) throws Exception {
         this.log = l;
         if (useZincServer) {
             this.zinc = new ZincClient(zincPort);
@@ -53,6 +78,9 @@ public class SbtIncrementalCompiler {
                 this.libraryJar = libraryJar;
                 this.extraJars = extraJars;
                 this.extraArgs = args;
+                this.xsbtiJar = xsbtiJar;
+                this.interfaceJar = interfaceJar;
+                this.embeddedServer = embeddedServer;
             } else {
                 l.warn("Zinc server is not available at port " + zincPort + " - reverting to normal incremental compile");
                 this.useServer = false;
@@ -64,10 +92,18 @@ public class SbtIncrementalCompiler {
             this.logger = new SbtLogger(l);
             Setup setup = Setup.create(compilerJar, libraryJar, extraJars, xsbtiJar, interfaceJar, null, false);
             if (l.isDebugEnabled()) Setup.debug(setup, logger);
-            this.compiler = Compiler.create(setup, logger);
+            // zinc caches the compilers by setup (bounded by the "zinc.compiler.cache.limit" system property)
+            this.compiler = Compiler.getOrCreate(setup, logger);
         }
     }
 
+    /**
+     * @return true if compilations are delegated to a zinc server (so they don't run inside the current JVM)
+     */
+    public boolean isUseServer() {
+        return useServer;
+    }
+
     private IncOptions defaultOptions() {
         sbt.inc.IncOptions defaultSbtOptions = sbt.inc.IncOptions.Default();
         return new IncOptions(
@@ -89,14 +125,54 @@ public class SbtIncrementalCompiler {
         } else {
             if (log.isDebugEnabled()) log.debug("Incremental compiler = " + compiler + " [" + Integer.toHexString(compiler.hashCode()) + "]");
             List<File> classpath = pathsToFiles(classpathElements);
-            Inputs inputs = Inputs.create(classpath, sources, classesDirectory, scalacOptions, javacOptions, cacheFile, cacheMap, compileOrder, defaultOptions(), true);
+            Inputs inputs = lazyInputs(classpath, sources, classesDirectory, scalacOptions, javacOptions, cacheFile, cacheMap, compileOrder);
             if (log.isDebugEnabled()) Inputs.debug(inputs, logger);
-            compiler.compile(inputs, logger);
+            File reportFile = ProblemReport.reportFileOf(cacheFile);
+            try {
+                compiler.compile(inputs, logger);
+                reportFile.delete();
+            } catch (xsbti.CompileFailed e) {
+                writeReport(reportFile, e.problems());
+                throw e;
+            } finally {
+                if (log.isDebugEnabled()) log.debug(String.format("analysis of %d/%d classpath entries loaded", LazyAnalysisMap.handlerOf(inputs.analysisMap()).loadedCount(), classpath.size()));
+            }
         }
     }
 
-    private void zincCompile(File baseDir, List<String> classpathElements, List<File> sources, File classesDirectory, List<String> scalacOptions, List<String> javacOptions, File cacheFile, Map<File, File> cacheMap, String compileOrder, Toolchain toolchain) throws Exception {
+    /**
+     * Same inputs as {@link Inputs#create}, but the analysis of the classpath entries are loaded on first use.
+     */
+    private Inputs lazyInputs(List<File> classpath, List<File> sources, File classesDirectory, List<String> scalacOptions, List<String> javacOptions, File cacheFile, Map<File, File> cacheMap, String compileOrder) {
+        // created without classpath, so no analysis is loaded
+        Inputs base = Inputs.create(Collections.<File>emptyList(), sources, classesDirectory, scalacOptions, javacOptions, cacheFile, Collections.<File, File>emptyMap(), compileOrder, defaultOptions(), true);
+        List<File> absoluteClasspath = new ArrayList<File>(classpath.size());
+        for (File f : classpath) {
+            absoluteClasspath.add(f.getAbsoluteFile());
+        }
+        return base.copy(JavaConversions.asScalaBuffer(absoluteClasspath).toList(), base.sources(), base.classesDirectory(), base.scalacOptions(), base.javacOptions(), base.cacheFile(), LazyAnalysisMap.create(absoluteClasspath, base.classesDirectory(), cacheMap), base.forceClean(), base.definesClass(), base.javaOnly(), base.compileOrder(), base.incOptions(), base.outputRelations(), base.outputProducts(), base.mirrorAnalysis());
+    }
+
+    private void writeReport(File reportFile, xsbti.Problem[] problems) {
+        try {
+            ProblemReport.write(reportFile, problems);
+            if (problems.length > 0) {
+                log.info(String.format("%d problem(s) reported in %s", problems.length, reportFile));
+            }
+        } catch (Exception e) {
+            log.warn("failed to write " + reportFile + ": " + e);
+        }
+    }
+
+    /**
+     * @return the arguments of the zinc server common to every compilation (built once)
+     */
+    private synchronized List<String> serverArguments() {
+        if (serverArguments != null) {
+            return serverArguments;
+        }
         List<String> arguments = new ArrayList<String>(extraArgs);
+        arguments.add("-no-color");
         arguments.add("-log-level");
         arguments.add(logLevelToString(log));
         arguments.add("-scala-compiler");
@@ -109,6 +185,20 @@ public class SbtIncrementalCompiler {
             extraPaths.add(extraJar.getAbsolutePath());
         }
         arguments.add(MainHelper.toMultiPath(extraPaths));
+        if (embeddedServer) {
+            arguments.add("-sbt-interface");
+            arguments.add(xsbtiJar.getAbsolutePath());
+            arguments.add("-compiler-interface");
+            arguments.add(interfaceJar.getAbsolutePath());
+        }
+        serverArguments = Collections.unmodifiableList(arguments);
+        return serverArguments;
+    }
+
+    private void zincCompile(File baseDir, List<String> classpathElements, List<File> sources, File classesDirectory, List<String> scalacOptions, List<String> javacOptions, File cacheFile, Map<File, File> cacheMap, String compileOrder, Toolchain toolchain) throws Exception {
+        List<String> base = serverArguments();
+        List<String> arguments = new ArrayList<String>(base.size() + scalacOptions.size() + javacOptions.size() + sources.size() + 16);
+        arguments.addAll(base);
         if (!classpathElements.isEmpty()) {
           arguments.add("-classpath");
           arguments.add(MainHelper.toMultiPath(classpathElements));
@@ -139,10 +229,21 @@ public class SbtIncrementalCompiler {
             arguments.add(source.getAbsolutePath());
         }
 
-        int exitCode = zinc.run(arguments, baseDir, System.out, System.err);
-
-        if (exitCode != 0) {
-            xsbti.Problem[] problems = null;
+        // the output is parsed to collect the problems
+        ZincOutputProcessor output = new ZincOutputProcessor(log);
+        int exitCode;
+        try {
+            exitCode = zinc.run(arguments, baseDir, output, output);
+        } finally {
+            output.close();
+        }
+        // like the in process compilation: a report of the problems of a failed compilation only
+        File reportFile = ProblemReport.reportFileOf(cacheFile);
+        if (exitCode == 0) {
+            reportFile.delete();
+        } else {
+            xsbti.Problem[] problems = output.getProblems();
+            writeReport(reportFile, problems);
             throw new sbt.compiler.CompileFailed(arguments.toArray(new String[arguments.size()]), "Compile failed via zinc server", problems);
         }
     }
@@ -163,16 +264,22 @@ public class SbtIncrementalCompiler {
         else return "info";
     }
 
-    private String cacheMapToString(Map<File, File> cacheMap) throws Exception {
-        String analysisMap = "";
-        boolean addArgSeparator = false;
+    /**
+     * The map is the same for every compilation of the session, so the last serialized map is kept.
+     */
+    private static synchronized String cacheMapToString(Map<File, File> cacheMap) {
+        if (lastCacheMap != null && cacheMap == lastCacheMap.get()) {
+            return lastCacheMapString;
+        }
+        StringBuilder analysisMap = new StringBuilder(cacheMap.size() * 128);
         for (Map.Entry<File, File> entry : cacheMap.entrySet()) {
-            if (addArgSeparator) analysisMap += ANALYSIS_MAP_ARG_SEPARATOR;
-            analysisMap += entry.getKey().getAbsolutePath();
-            analysisMap += ANALYSIS_MAP_PAIR_SEPARATOR;
-            analysisMap += entry.getValue().getAbsolutePath();
-            addArgSeparator = true;
+            if (analysisMap.length() > 0) analysisMap.append(ANALYSIS_MAP_ARG_SEPARATOR);
+            analysisMap.append(entry.getKey().getAbsolutePath());
+            analysisMap.append(ANALYSIS_MAP_PAIR_SEPARATOR);
+            analysisMap.append(entry.getValue().getAbsolutePath());
         }
-        return analysisMap;
+        lastCacheMap = new WeakReference<Map<File, File>>(cacheMap);
+        lastCacheMapString = analysisMap.toString();
+        return lastCacheMapString;
     }
 }
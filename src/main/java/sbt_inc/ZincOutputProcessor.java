@@ -0,0 +1,209 @@
+package sbt_inc;
+
+import org.apache.commons.exec.LogOutputStream;
+import org.apache.maven.plugin.logging.Log;
+import xsbti.Maybe;
+import xsbti.Position;
+import xsbti.Problem;
+import xsbti.Severity;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Output of a zinc server (without color): lines are sent to the maven log (at the level of the line),
+ * and the problems reported by the compiler are collected.
+ *
+ * A problem is reported as "[error] /path/File.scala:12: message", the next lines are the end of the message,
+ * the source line, then the caret line (pointing the column).
+ */
+class ZincOutputProcessor extends LogOutputStream {
+
+    private static final Pattern LINE = Pattern.compile("^\\[(error|warn|info|debug)\\] ?(.*)$");
+    private static final Pattern PROBLEM = Pattern.compile("^(.+):(\\d+): (.*)$");
+    private static final Pattern CARET = Pattern.compile("^(\\s*)\\^\\s*$");
+    private static final Pattern SUMMARY = Pattern.compile("^\\w+ (warning|error)s? found$");
+
+    private final Log _log;
+    private final List<Problem> _problems = new ArrayList<Problem>();
+
+    private Severity _severity;
+    private String _path;
+    private int _line;
+    private final List<String> _lines = new ArrayList<String>();
+
+    ZincOutputProcessor(Log log) {
+        _log = log;
+    }
+
+    /**
+     * @return the problems found in the output (call after close)
+     */
+    Problem[] getProblems() {
+        return _problems.toArray(new Problem[_problems.size()]);
+    }
+
+    @Override
+    protected void processLine(String line, int level) {
+        Matcher m = LINE.matcher(line);
+        if (!m.matches()) {
+            endProblem(null);
+            _log.info(line);
+            return;
+        }
+        String lineLevel = m.group(1);
+        String text = m.group(2);
+        if ("error".equals(lineLevel)) {
+            _log.error(text);
+        } else if ("warn".equals(lineLevel)) {
+            _log.warn(text);
+        } else if ("debug".equals(lineLevel)) {
+            _log.debug(text);
+        } else {
+            _log.info(text);
+        }
+        Severity severity = "error".equals(lineLevel) ? Severity.Error : "warn".equals(lineLevel) ? Severity.Warn : null;
+        if (_severity != null && severity == _severity) {
+            Matcher caret = CARET.matcher(text);
+            if (caret.matches()) {
+                endProblem(caret.group(1));
+                return;
+            }
+            if (!PROBLEM.matcher(text).matches() && !SUMMARY.matcher(text).matches()) {
+                _lines.add(text);
+                return;
+            }
+        }
+        endProblem(null);
+        Matcher problem = PROBLEM.matcher(text);
+        if (severity != null && problem.matches() && new File(problem.group(1)).isAbsolute()) {
+            _severity = severity;
+            _path = problem.group(1);
+            _line = Integer.parseInt(problem.group(2));
+            _lines.add(problem.group(3));
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            super.close();
+        } catch (IOException exc) {
+            // nothing to close
+        }
+        endProblem(null);
+    }
+
+    /**
+     * @param pointerSpace the space before the caret, or null if the problem has no caret line
+     */
+    private void endProblem(String pointerSpace) {
+        if (_severity == null) {
+            return;
+        }
+        String lineContent = "";
+        if (pointerSpace != null && _lines.size() > 1) {
+            lineContent = _lines.remove(_lines.size() - 1);
+        }
+        StringBuilder message = new StringBuilder();
+        for (String l : _lines) {
+            if (message.length() > 0) {
+                message.append('\n');
+            }
+            message.append(l);
+        }
+        _problems.add(new ZincProblem(_severity, message.toString(), new ZincPosition(_path, _line, lineContent, pointerSpace)));
+        _severity = null;
+        _lines.clear();
+    }
+
+    static class ZincProblem implements Problem {
+        private final Severity _severity;
+        private final String _message;
+        private final Position _position;
+
+        ZincProblem(Severity severity, String message, Position position) {
+            _severity = severity;
+            _message = message;
+            _position = position;
+        }
+
+        @Override
+        public String category() {
+            return "";
+        }
+
+        @Override
+        public Severity severity() {
+            return _severity;
+        }
+
+        @Override
+        public String message() {
+            return _message;
+        }
+
+        @Override
+        public Position position() {
+            return _position;
+        }
+
+        @Override
+        public String toString() {
+            return _position.sourcePath().get() + ":" + _position.line().get() + ": " + _severity + ": " + _message;
+        }
+    }
+
+    static class ZincPosition implements Position {
+        private final String _path;
+        private final int _line;
+        private final String _lineContent;
+        private final String _pointerSpace;
+
+        ZincPosition(String path, int line, String lineContent, String pointerSpace) {
+            _path = path;
+            _line = line;
+            _lineContent = lineContent;
+            _pointerSpace = pointerSpace;
+        }
+
+        @Override
+        public Maybe<Integer> line() {
+            return Maybe.just(_line);
+        }
+
+        @Override
+        public String lineContent() {
+            return _lineContent;
+        }
+
+        @Override
+        public Maybe<Integer> offset() {
+            return Maybe.nothing();
+        }
+
+        @Override
+        public Maybe<Integer> pointer() {
+            return (_pointerSpace == null) ? Maybe.<Integer>nothing() : Maybe.just(_pointerSpace.length());
+        }
+
+        @Override
+        public Maybe<String> pointerSpace() {
+            return (_pointerSpace == null) ? Maybe.<String>nothing() : Maybe.just(_pointerSpace);
+        }
+
+        @Override
+        public Maybe<String> sourcePath() {
+            return Maybe.just(_path);
+        }
+
+        @Override
+        public Maybe<File> sourceFile() {
+            return Maybe.just(new File(_path));
+        }
+    }
+}
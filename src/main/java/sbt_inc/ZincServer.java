@@ -0,0 +1,136 @@
+package sbt_inc;
+
+import com.typesafe.zinc.ZincClient;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugin.logging.Log;
+import org.codehaus.plexus.util.IOUtil;
+import org.codehaus.plexus.util.StringUtils;
+import scala_maven_executions.MainHelper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Zinc server (nailgun) started by the plugin when no server answers on the zinc port.
+ *
+ * The server listens on the loopback interface only (see {@link ZincServerMain}), it doesn't authenticate its clients
+ * so any local user can run compilations with it.
+ *
+ * The server is not stopped at the end of the build, so the next builds (on the same port) use a warm compiler,
+ * it stops itself after its idle timeout.
+ */
+public class ZincServer {
+
+    public static final String NAILGUN_GROUP_ID = "com.martiansoftware";
+    public static final String NAILGUN_ARTIFACT_ID = "nailgun-server";
+    public static final String NAILGUN_VERSION = "0.9.1";
+
+    /**
+     * Max time to wait for a new server to answer.
+     */
+    private static final long START_TIMEOUT = 60000;
+
+    /**
+     * Starts a zinc server if no server answers on the port.
+     *
+     * @param javaExec java executable (of the toolchain)
+     * @param classpath classpath of the server (zinc and its dependencies, nailgun-server)
+     * @param idleTimeout time (in minutes) without compilation after which the server stops
+     */
+    public static synchronized void require(int port, String javaExec, List<String> jvmArgs, List<File> classpath, int idleTimeout, Log log) throws Exception {
+        ZincClient client = new ZincClient(port);
+        if (client.serverAvailable()) {
+            return;
+        }
+        List<String> paths = new ArrayList<String>(classpath.size());
+        for (File f : classpath) {
+            paths.add(f.getAbsolutePath());
+        }
+        paths.add(MainHelper.locateJar(ZincServerMain.class));
+        List<String> cmd = new ArrayList<String>();
+        cmd.add(javaExec);
+        cmd.addAll(jvmArgs);
+        cmd.add("-classpath");
+        cmd.add(MainHelper.toMultiPath(paths));
+        cmd.add(ZincServerMain.class.getName());
+        cmd.add(String.valueOf(port));
+        cmd.add(String.valueOf(idleTimeout));
+        log.info("start zinc server on 127.0.0.1:" + port + " (stopped after " + idleTimeout + " min without compilation)");
+        if (log.isDebugEnabled()) {
+            log.debug("cmd: " + StringUtils.join(cmd.iterator(), " "));
+        }
+        ProcessBuilder pb = new ProcessBuilder(cmd);
+        pb.redirectErrorStream(true);
+        Process process = pb.start();
+        process.getOutputStream().close();
+        StartupOutput output = new StartupOutput();
+        drain(process.getInputStream(), output);
+        long deadline = System.currentTimeMillis() + START_TIMEOUT;
+        while (System.currentTimeMillis() < deadline) {
+            Thread.sleep(100);
+            if (client.serverAvailable()) {
+                output.started();
+                return;
+            }
+            try {
+                int exitValue = process.exitValue();
+                throw new MojoFailureException("zinc server failed to start (exit value: " + exitValue + "): " + output.toString());
+            } catch (IllegalThreadStateException exc) {
+                // still running
+            }
+        }
+        process.destroy();
+        throw new MojoFailureException("zinc server doesn't answer after " + START_TIMEOUT + " ms: " + output.toString());
+    }
+
+    /**
+     * Keeps the output of the server until it's started (to report a failed start), then discards it
+     * (the output is still read, else the server would block on a full pipe).
+     */
+    private static class StartupOutput extends OutputStream {
+        private ByteArrayOutputStream _buffer = new ByteArrayOutputStream();
+
+        @Override
+        public synchronized void write(int b) {
+            if (_buffer != null) {
+                _buffer.write(b);
+            }
+        }
+
+        @Override
+        public synchronized void write(byte[] b, int off, int len) {
+            if (_buffer != null) {
+                _buffer.write(b, off, len);
+            }
+        }
+
+        synchronized void started() {
+            _buffer = null;
+        }
+
+        @Override
+        public synchronized String toString() {
+            return (_buffer != null) ? _buffer.toString() : "";
+        }
+    }
+
+    private static void drain(final InputStream in, final OutputStream out) {
+        Thread t = new Thread("zinc server output") {
+            @Override
+            public void run() {
+                try {
+                    IOUtil.copy(in, out);
+                } catch (IOException exc) {
+                    // the stream is closed
+                }
+            }
+        };
+        t.setDaemon(true);
+        t.start();
+    }
+}
@@ -0,0 +1,58 @@
+package sbt_inc;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.net.InetAddress;
+
+import scala.Function0;
+import scala.runtime.BoxedUnit;
+
+import com.typesafe.zinc.Nailgun;
+import com.typesafe.zinc.Nailgun$;
+import com.typesafe.zinc.Util$;
+
+/**
+ * Main class of the zinc server started by {@link ZincServer}: the same server as com.typesafe.zinc.Nailgun (zinc
+ * nails, idle timeout, shutdown hook) but listening on the loopback interface only, zinc binds its server to all the
+ * interfaces and nailgun doesn't authenticate the clients.
+ *
+ * Nailgun is only on the classpath of the server (not of the plugin), so it's called by reflection, as the internals
+ * of zinc 0.3.9 it relies on.
+ *
+ * Arguments: port, idle timeout (in minutes).
+ */
+public class ZincServerMain {
+
+    private static final String NGSERVER_CLASS = "com.martiansoftware.nailgun.NGServer";
+    private static final String ALIAS_CLASS = "com.martiansoftware.nailgun.Alias";
+
+    public static void main(String[] args) throws Exception {
+        int port = Integer.parseInt(args[0]);
+        long idleTimeout = Integer.parseInt(args[1]) * 60L * 1000L;
+
+        Class<?> serverClass = Class.forName(NGSERVER_CLASS);
+        Object server = serverClass.getConstructor(InetAddress.class, int.class).newInstance(InetAddress.getByName("127.0.0.1"), port);
+        Object aliases = serverClass.getMethod("getAliasManager").invoke(server);
+        Class<?> aliasClass = Class.forName(ALIAS_CLASS);
+        Constructor<?> newAlias = aliasClass.getConstructor(String.class, String.class, Class.class);
+        addAlias(aliases, aliasClass, newAlias.newInstance("zinc", "scala incremental compiler", Nailgun.class));
+        addAlias(aliases, aliasClass, newAlias.newInstance("status", "status of nailgun server", Nailgun.class));
+        addAlias(aliases, aliasClass, newAlias.newInstance("shutdown", "shutdown the nailgun server", Nailgun.class));
+
+        // the timer reset by each nail of zinc, it shuts the server down
+        @SuppressWarnings("unchecked")
+        Function0<BoxedUnit> shutdown = (Function0<BoxedUnit>) Class.forName("com.typesafe.zinc.Nailgun$$anonfun$start$1").getConstructor(serverClass).newInstance(server);
+        Field timer = Nailgun$.class.getDeclaredField("shutdownTimer");
+        timer.setAccessible(true);
+        timer.set(Nailgun$.MODULE$, Util$.MODULE$.timer(idleTimeout, shutdown));
+        Runtime.getRuntime().addShutdownHook((Thread) Class.forName("com.typesafe.zinc.Nailgun$ShutdownHook").getConstructor(serverClass).newInstance(server));
+
+        Thread t = new Thread((Runnable) server);
+        t.setName("ZincNailgun(" + port + ")");
+        t.start();
+    }
+
+    private static void addAlias(Object aliases, Class<?> aliasClass, Object alias) throws Exception {
+        aliases.getClass().getMethod("addAlias", aliasClass).invoke(aliases, alias);
+    }
+}
@@ -0,0 +1,263 @@
+package scala_maven;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Dependencies between sources, computed from the constant pool of the class files of a previous compilation.
+ *
+ * A class is mapped to its source with its package and its "SourceFile" attribute, so sources are identified by
+ * their path relative to the source root (eg "foo/bar/Foo.scala" for classes foo.bar.Foo, foo.bar.Foo$,...).
+ * This works only if the directory of a source matches its package (the usual layout).
+ * A class depends on every class named in its constant pool (class references and types used in descriptors),
+ * constants inlined by the compiler are not tracked.
+ */
+class ClassDependencyIndex {
+
+    private static final int CLASS_MAGIC = 0xCAFEBABE;
+
+    /** source key -> classes defined in the source */
+    private final Map<String, Set<String>> _classesBySource = new HashMap<String, Set<String>>();
+
+    /** class -> source key */
+    private final Map<String, String> _sourceByClass = new HashMap<String, String>();
+
+    /** class -> classes referencing it */
+    private final Map<String, Set<String>> _dependentsByClass = new HashMap<String, Set<String>>();
+
+    /**
+     * Builds the index from every class file of the directory (recursively).
+     */
+    static ClassDependencyIndex build(File classesDir) throws IOException {
+        ClassDependencyIndex back = new ClassDependencyIndex();
+        back.addDirectory(classesDir);
+        return back;
+    }
+
+    /**
+     * @return the key of the source (its path relative to the source root with '/' as separator), or null if the source is not under one of the roots.
+     */
+    static String sourceKeyOf(File source, List<File> sourceRootDirs) {
+        String path = source.getPath();
+        for (File root : sourceRootDirs) {
+            String prefix = root.getPath() + File.separator;
+            if (path.startsWith(prefix)) {
+                return path.substring(prefix.length()).replace(File.separatorChar, '/');
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return true if at least one class of the index was compiled from the source.
+     */
+    boolean defines(String sourceKey) {
+        return _classesBySource.containsKey(sourceKey);
+    }
+
+    /**
+     * @return the sources and every source that depends (directly or transitively) on them.
+     */
+    Set<String> dependentSourcesOf(Collection<String> sourceKeys) {
+        Set<String> back = new HashSet<String>(sourceKeys);
+        LinkedList<String> toVisit = new LinkedList<String>(sourceKeys);
+        while (!toVisit.isEmpty()) {
+            Set<String> classes = _classesBySource.get(toVisit.removeFirst());
+            if (classes == null) {
+                continue;
+            }
+            for (String clazz : classes) {
+                Set<String> dependents = _dependentsByClass.get(clazz);
+                if (dependents == null) {
+                    continue;
+                }
+                for (String dependent : dependents) {
+                    String source = _sourceByClass.get(dependent);
+                    if (source != null && back.add(source)) {
+                        toVisit.add(source);
+                    }
+                }
+            }
+        }
+        return back;
+    }
+
+    private void addDirectory(File dir) throws IOException {
+        File[] children = dir.listFiles();
+        if (children == null) {
+            return;
+        }
+        for (File child : children) {
+            if (child.isDirectory()) {
+                addDirectory(child);
+            } else if (child.getName().endsWith(".class")) {
+                addClassFile(child);
+            }
+        }
+    }
+
+    void addClassFile(File classFile) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(classFile)));
+        try {
+            addClass(in);
+        } finally {
+            in.close();
+        }
+    }
+
+    private void addClass(DataInputStream in) throws IOException {
+        if (in.readInt() != CLASS_MAGIC) {
+            return;
+        }
+        in.readUnsignedShort(); // minor version
+        in.readUnsignedShort(); // major version
+        int poolSize = in.readUnsignedShort();
+        String[] utf8s = new String[poolSize];
+        int[] classNameIndexes = new int[poolSize];
+        for (int i = 1; i < poolSize; i++) {
+            int tag = in.readUnsignedByte();
+            switch (tag) {
+                case 1: // Utf8
+                    utf8s[i] = in.readUTF();
+                    break;
+                case 7: // Class
+                    classNameIndexes[i] = in.readUnsignedShort();
+                    break;
+                case 8: // String
+                case 16: // MethodType
+                case 19: // Module
+                case 20: // Package
+                    skip(in, 2);
+                    break;
+                case 15: // MethodHandle
+                    skip(in, 3);
+                    break;
+                case 3: // Integer
+                case 4: // Float
+                case 9: // Fieldref
+                case 10: // Methodref
+                case 11: // InterfaceMethodref
+                case 12: // NameAndType
+                case 17: // Dynamic
+                case 18: // InvokeDynamic
+                    skip(in, 4);
+                    break;
+                case 5: // Long
+                case 6: // Double
+                    skip(in, 8);
+                    i++;
+                    break;
+                default:
+                    throw new IOException("unsupported constant pool tag " + tag);
+            }
+        }
+        in.readUnsignedShort(); // access flags
+        String className = utf8s[classNameIndexes[in.readUnsignedShort()]];
+        in.readUnsignedShort(); // super class
+        skip(in, 2 * in.readUnsignedShort()); // interfaces
+        skipMembers(in); // fields
+        skipMembers(in); // methods
+        String sourceFile = null;
+        int attributesCount = in.readUnsignedShort();
+        for (int i = 0; i < attributesCount; i++) {
+            String name = utf8s[in.readUnsignedShort()];
+            int length = in.readInt();
+            if ("SourceFile".equals(name)) {
+                sourceFile = utf8s[in.readUnsignedShort()];
+            } else {
+                skip(in, length);
+            }
+        }
+        if (sourceFile == null) {
+            return;
+        }
+
+        int lastSlash = className.lastIndexOf('/');
+        String sourceKey = (lastSlash < 0) ? sourceFile : className.substring(0, lastSlash + 1) + sourceFile;
+        _sourceByClass.put(className, sourceKey);
+        Set<String> classes = _classesBySource.get(sourceKey);
+        if (classes == null) {
+            classes = new HashSet<String>();
+            _classesBySource.put(sourceKey, classes);
+        }
+        classes.add(className);
+
+        // every class name used in the class (class references, field and method descriptors, generic signatures)
+        Set<String> references = new HashSet<String>();
+        for (int index : classNameIndexes) {
+            if (index == 0) {
+                continue;
+            }
+            String name = utf8s[index];
+            if (name.charAt(0) == '[') {
+                addReferencesFromDescriptor(name, references);
+            } else {
+                references.add(name);
+            }
+        }
+        for (String utf8 : utf8s) {
+            if (utf8 != null && utf8.indexOf(';') > -1) {
+                addReferencesFromDescriptor(utf8, references);
+            }
+        }
+        references.remove(className);
+        for (String reference : references) {
+            Set<String> dependents = _dependentsByClass.get(reference);
+            if (dependents == null) {
+                dependents = new HashSet<String>();
+                _dependentsByClass.put(reference, dependents);
+            }
+            dependents.add(className);
+        }
+    }
+
+    private static void skipMembers(DataInputStream in) throws IOException {
+        int count = in.readUnsignedShort();
+        for (int i = 0; i < count; i++) {
+            skip(in, 6); // access flags, name, descriptor
+            int attributesCount = in.readUnsignedShort();
+            for (int j = 0; j < attributesCount; j++) {
+                skip(in, 2);
+                skip(in, in.readInt());
+            }
+        }
+    }
+
+    private static void skip(DataInputStream in, int length) throws IOException {
+        while (length > 0) {
+            int skipped = in.skipBytes(length);
+            if (skipped <= 0) {
+                throw new EOFException();
+            }
+            length -= skipped;
+        }
+    }
+
+    /**
+     * Extracts class names from "Lxxx/yyy/Zzz;" patterns (descriptors and generic signatures).
+     */
+    private static void addReferencesFromDescriptor(String descriptor, Set<String> references) {
+        int start = descriptor.indexOf('L');
+        while (start > -1) {
+            int end = start + 1;
+            while (end < descriptor.length() && descriptor.charAt(end) != ';' && descriptor.charAt(end) != '<') {
+                end++;
+            }
+            if (end < descriptor.length() && end > start + 1) {
+                references.add(descriptor.substring(start + 1, end));
+            }
+            start = descriptor.indexOf('L', end);
+        }
+    }
+}
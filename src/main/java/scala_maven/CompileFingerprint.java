@@ -0,0 +1,172 @@
+package scala_maven;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.codehaus.plexus.util.IOUtil;
+
+/**
+ * Fingerprint of the inputs of an incremental compilation: options (scalac and javac options, compile order, compiler jars, java home,...),
+ * content of the sources, of the classpath (jars and files of directories) and of the compiler and plugin jars, and state of
+ * an output marker (the analysis cache of a compilation, the index of a scaladoc, the jar of a doc-jar) and of the output
+ * class files (of a compilation) after the generation.
+ *
+ * When the fingerprint of the last successful compilation matches the current one, the compilation would be a no-op,
+ * so the compiler (and the loading of the analysis) can be skipped.
+ * The checksum of a file is only computed when its size or its modification time doesn't match the previous fingerprint.
+ */
+class CompileFingerprint {
+
+    private final String _options;
+    private final SourceManifest _inputs;
+    private String _outputMarker = "";
+
+    private CompileFingerprint(String options, SourceManifest inputs) {
+        _options = options;
+        _inputs = inputs;
+    }
+
+    /**
+     * @param previous fingerprint of the previous compilation (to reuse checksums of unchanged files), or null
+     * @param options options of the compilation (any change of an option requires a compilation)
+     */
+    static CompileFingerprint compute(CompileFingerprint previous, List<String> options, List<String> classpathElements, List<File> sources) throws Exception {
+        List<File> files = new ArrayList<File>(sources);
+        for (String element : classpathElements) {
+            addFiles(new File(element), files);
+        }
+        SourceManifest previousInputs = (previous != null) ? previous._inputs : new SourceManifest();
+        return new CompileFingerprint(digest(options), previousInputs.scan(files));
+    }
+
+    private static void addFiles(File f, Collection<File> files) {
+        if (f.isDirectory()) {
+            File[] children = f.listFiles();
+            if (children != null) {
+                for (File child : children) {
+                    addFiles(child, files);
+                }
+            }
+        } else if (f.exists()) {
+            files.add(f);
+        }
+    }
+
+    private static String digest(List<String> options) throws Exception {
+        MessageDigest md = MessageDigest.getInstance("MD5");
+        for (String option : options) {
+            md.update(option.getBytes("UTF-8"));
+            md.update((byte) 0);
+        }
+        StringBuilder back = new StringBuilder();
+        for (byte b : md.digest()) {
+            back.append(String.format("%02x", b));
+        }
+        return back.toString();
+    }
+
+    private static String stateOf(File outputMarker, File classesDir) throws Exception {
+        String back = outputMarker.length() + "/" + outputMarker.lastModified();
+        if (classesDir != null) {
+            back += "/" + stateOfClasses(classesDir);
+        }
+        return back;
+    }
+
+    /**
+     * Only the class files are part of the state, the resources of the output directory are copied again by each build.
+     */
+    private static String stateOfClasses(File classesDir) throws Exception {
+        List<File> files = new ArrayList<File>();
+        addFiles(classesDir, files);
+        List<String> classes = new ArrayList<String>();
+        String prefix = classesDir.getAbsolutePath();
+        for (File f : files) {
+            if (f.getName().endsWith(".class")) {
+                classes.add(f.getAbsolutePath().substring(prefix.length()) + "/" + f.length() + "/" + f.lastModified());
+            }
+        }
+        Collections.sort(classes);
+        return classes.size() + "/" + digest(classes);
+    }
+
+    /**
+     * Records the state of the output marker (a file updated by each generation), used to detect generations made by other tools.
+     */
+    void setOutputMarker(File outputMarker) throws Exception {
+        setOutputMarker(outputMarker, null);
+    }
+
+    /**
+     * Records the state of the output marker and of the class files generated in classesDir, used to detect generations
+     * made by other tools and class files deleted or modified since the generation.
+     */
+    void setOutputMarker(File outputMarker, File classesDir) throws Exception {
+        _outputMarker = stateOf(outputMarker, classesDir);
+    }
+
+    /**
+     * @return true if this (current) fingerprint matches the one of the last generation and the output marker wasn't modified since
+     */
+    boolean isUpToDate(CompileFingerprint last, File outputMarker) throws Exception {
+        return isUpToDate(last, outputMarker, null);
+    }
+
+    /**
+     * @return true if this (current) fingerprint matches the one of the last generation and neither the output marker nor
+     * the class files of classesDir were modified since
+     */
+    boolean isUpToDate(CompileFingerprint last, File outputMarker, File classesDir) throws Exception {
+        return outputMarker.exists()
+            && last._outputMarker.equals(stateOf(outputMarker, classesDir))
+            && _options.equals(last._options)
+            && _inputs.hasSameContentAs(last._inputs);
+    }
+
+    /**
+     * @return the fingerprint or null if the file doesn't exist or can't be read.
+     */
+    static CompileFingerprint load(File file) {
+        if (!file.exists()) {
+            return null;
+        }
+        BufferedReader in = null;
+        try {
+            in = new BufferedReader(new FileReader(file));
+            String options = in.readLine();
+            String outputMarker = in.readLine();
+            SourceManifest inputs = SourceManifest.read(in);
+            if (options == null || outputMarker == null || inputs == null) {
+                return null;
+            }
+            CompileFingerprint back = new CompileFingerprint(options, inputs);
+            back._outputMarker = outputMarker;
+            return back;
+        } catch (IOException exc) {
+            return null;
+        } finally {
+            IOUtil.close(in);
+        }
+    }
+
+    void save(File file) throws IOException {
+        PrintWriter out = new PrintWriter(new BufferedWriter(new FileWriter(file)));
+        try {
+            out.println(_options);
+            out.println(_outputMarker);
+            _inputs.write(out);
+        } finally {
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package scala_maven;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Plugin wide pool of compilation slots, shared by every module compiled in the same build (eg when maven is run with -T).
+ *
+ * Every compilation borrows a slot, so no more than {@link #size()} scalac run at the same time.
+ * Compilations running inside the build JVM (incremental compiler, fork=false) also borrow a heap slot,
+ * the number of heap slots is bounded by the max heap of the JVM divided by {@link #HEAP_PER_COMPILE}
+ * (to avoid OutOfMemoryError when several modules are compiled concurrently).
+ */
+class CompilerPool {
+
+    /**
+     * Estimation of the heap used by one scalac run inside the build JVM.
+     */
+    static final long HEAP_PER_COMPILE = 384L * 1024 * 1024;
+
+    private static CompilerPool _instance;
+
+    /**
+     * @param requestedSize the max number of concurrent compilations, if <= 0 then half the number of available processors is used.
+     *        Only the first call defines the size of the pool, a different size requested later is ignored (with a warning).
+     */
+    static synchronized CompilerPool get(int requestedSize, Log log) {
+        if (_instance == null) {
+            int size = (requestedSize > 0) ? requestedSize : Runtime.getRuntime().availableProcessors() / 2;
+            int heapSize = (int) Math.min(Integer.MAX_VALUE, Runtime.getRuntime().maxMemory() / HEAP_PER_COMPILE);
+            _instance = new CompilerPool(Math.max(1, size), Math.max(1, heapSize));
+        } else if (requestedSize > 0 && requestedSize != _instance._size && _instance._ignoredSizes.add(requestedSize)) {
+            log.warn(String.format("compilerPoolSize %d ignored: the compiler pool is shared by the build and its size is already %d", requestedSize, _instance._size));
+        }
+        return _instance;
+    }
+
+    private final int _size;
+    private final Semaphore _slots;
+    private final Semaphore _heapSlots;
+    private final Set<Integer> _ignoredSizes = new HashSet<Integer>();
+
+    private CompilerPool(int size, int heapSize) {
+        _size = size;
+        _slots = new Semaphore(size, true);
+        _heapSlots = new Semaphore(Math.min(size, heapSize), true);
+    }
+
+    int size() {
+        return _size;
+    }
+
+    /**
+     * Waits for a free slot.
+     *
+     * @param inProcess true if the compilation runs inside the build JVM
+     * @return the time waited (in ms)
+     */
+    long acquire(boolean inProcess) throws InterruptedException {
+        long t0 = System.currentTimeMillis();
+        _slots.acquire();
+        if (inProcess) {
+            try {
+                _heapSlots.acquire();
+            } catch (InterruptedException exc) {
+                _slots.release();
+                throw exc;
+            }
+        }
+        return System.currentTimeMillis() - t0;
+    }
+
+    void release(boolean inProcess) {
+        if (inProcess) {
+            _heapSlots.release();
+        }
+        _slots.release();
+    }
+}
@@ -0,0 +1,125 @@
+package scala_maven;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+import org.apache.maven.execution.MavenExecutionRequest;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.model.Plugin;
+import org.apache.maven.model.PluginExecution;
+import org.apache.maven.model.ReportPlugin;
+import org.apache.maven.project.MavenProject;
+
+/**
+ * State of the aggregation of the scaladoc of a build: modules already documented and parents already aggregated.
+ *
+ * A parent is aggregated once, when every module to aggregate is documented or built (modules are not built in the
+ * order of the list of modules of the parent with "mvn -T", so the last module of the list can be built before the others).
+ * A module that doesn't run the doc goal (not requested, not bound to the lifecycle, not reported by the site)
+ * is not waited for, so the aggregation is run by the last documented module even if an undocumented one is built after.
+ */
+class DocAggregation {
+
+    /**
+     * States by build, keyed by the request of the session: shared by the clones of the session made for each module
+     * with "mvn -T" (weak keys: the request of an embedded maven is released after the build).
+     */
+    private static final Map<MavenExecutionRequest, DocAggregation> _states = new WeakHashMap<MavenExecutionRequest, DocAggregation>();
+
+    private final Set<String> _documented = new HashSet<String>();
+    private final Set<String> _aggregated = new HashSet<String>();
+
+    /**
+     * @return the state of the build of the session, or a new (not shared) state if the session is null
+     */
+    static DocAggregation of(MavenSession session) {
+        if (session == null) {
+            return new DocAggregation();
+        }
+        synchronized (_states) {
+            DocAggregation back = _states.get(session.getRequest());
+            if (back == null) {
+                back = new DocAggregation();
+                _states.put(session.getRequest(), back);
+            }
+            return back;
+        }
+    }
+
+    /**
+     * @return true if the module is aggregated by the parent
+     */
+    static boolean isAggregated(MavenProject module, MavenProject parent, boolean directOnly) {
+        if ("pom".equals(module.getPackaging().toLowerCase())) {
+            return false;
+        }
+        return !directOnly || module.getParent() == parent;
+    }
+
+    synchronized void setDocumented(MavenProject module) {
+        _documented.add(module.getId());
+    }
+
+    /**
+     * Marks the parent as aggregated if every module to aggregate is documented, or is built (without doc), or
+     * is not part of the session.
+     *
+     * @return true if the parent is ready for aggregation and was not aggregated yet
+     */
+    synchronized boolean startAggregation(MavenProject parent, MavenSession session, boolean directOnly, String pluginKey) {
+        List<MavenProject> modules = parent.getCollectedProjects();
+        if (modules.size() < 2 || _aggregated.contains(parent.getId())) {
+            return false;
+        }
+        for (MavenProject module : modules) {
+            if (isAggregated(module, parent, directOnly) && !_documented.contains(module.getId()) && isPending(module, session, pluginKey)) {
+                return false;
+            }
+        }
+        _aggregated.add(parent.getId());
+        return true;
+    }
+
+    /**
+     * @return true if the module is not built yet and will run the doc goal
+     */
+    private static boolean isPending(MavenProject module, MavenSession session, String pluginKey) {
+        if (session == null) {
+            return false;
+        }
+        return session.getProjects().contains(module) && session.getResult().getBuildSummary(module) == null && runsDoc(module, session, pluginKey);
+    }
+
+    /**
+     * @return true if the doc goal of the plugin is requested on the command line, or bound to the lifecycle of the module,
+     * or run by the site of the module (when requested)
+     */
+    static boolean runsDoc(MavenProject module, MavenSession session, String pluginKey) {
+        boolean site = false;
+        for (String goal : session.getGoals()) {
+            if (goal.endsWith(":doc") || goal.endsWith(":doc-jar")) {
+                return true;
+            }
+            site = site || goal.contains("site");
+        }
+        Plugin plugin = module.getPlugin(pluginKey);
+        if (plugin != null) {
+            for (PluginExecution execution : plugin.getExecutions()) {
+                if (execution.getGoals().contains("doc") || execution.getGoals().contains("doc-jar")) {
+                    return true;
+                }
+            }
+        }
+        if (site && module.getModel().getReporting() != null) {
+            for (ReportPlugin report : module.getModel().getReporting().getPlugins()) {
+                if (pluginKey.equals(report.getKey())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
@@ -1,6 +1,15 @@
 package scala_maven;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 class FileUtils extends org.codehaus.plexus.util.FileUtils {
   
@@ -19,4 +28,75 @@ class FileUtils extends org.codehaus.plexus.util.FileUtils {
   public static File fileOf(File f, boolean canonical) throws Exception {
     return canonical? f.getCanonicalFile() : f.getAbsoluteFile();
   }
-}
\ No newline at end of file
+
+  /**
+   * Max number of threads used to resolve canonical paths (resolution is mostly waiting for the file system, eg NFS).
+   */
+  private static final int MAX_RESOLVERS = 8;
+
+  /**
+   * Under this number of directories, canonical paths are resolved by the calling thread.
+   */
+  private static final int MIN_PARALLEL_DIRS = 32;
+
+  /**
+   * Same as calling {@link #fileOf(File, boolean)} on every new File(root, relativePath), but only the directories
+   * are resolved (once per directory, in parallel when there are a lot of them).
+   * The files are then created under their canonical directory, so a file that is itself a symbolic link is not resolved.
+   *
+   * @param relativePaths paths relative to root (without "." or ".." segments), like returned by a DirectoryScanner
+   */
+  static List<File> filesOf(File root, String[] relativePaths, boolean canonical) throws Exception {
+    List<File> back = new ArrayList<File>(relativePaths.length);
+    if (!canonical) {
+      File absRoot = root.getAbsoluteFile();
+      for (String path : relativePaths) {
+        back.add(new File(absRoot, path));
+      }
+      return back;
+    }
+    Map<String, File> dirs = new HashMap<String, File>();
+    for (String path : relativePaths) {
+      dirs.put(parentOf(path), null);
+    }
+    resolveDirs(root, dirs);
+    for (String path : relativePaths) {
+      back.add(new File(dirs.get(parentOf(path)), path.substring(path.lastIndexOf(File.separatorChar) + 1)));
+    }
+    return back;
+  }
+
+  private static String parentOf(String relativePath) {
+    int i = relativePath.lastIndexOf(File.separatorChar);
+    return (i < 0) ? "" : relativePath.substring(0, i);
+  }
+
+  private static void resolveDirs(final File root, Map<String, File> dirs) throws Exception {
+    if (dirs.size() < MIN_PARALLEL_DIRS) {
+      for (Map.Entry<String, File> e : dirs.entrySet()) {
+        e.setValue(new File(root, e.getKey()).getCanonicalFile());
+      }
+      return;
+    }
+    ExecutorService executor = Executors.newFixedThreadPool(Math.min(MAX_RESOLVERS, Runtime.getRuntime().availableProcessors() * 2));
+    try {
+      Map<String, Future<File>> futures = new HashMap<String, Future<File>>();
+      for (final String dir : dirs.keySet()) {
+        futures.put(dir, executor.submit(new Callable<File>() {
+          public File call() throws Exception {
+            return new File(root, dir).getCanonicalFile();
+          }
+        }));
+      }
+      for (Map.Entry<String, Future<File>> e : futures.entrySet()) {
+        try {
+          dirs.put(e.getKey(), e.getValue().get());
+        } catch (ExecutionException exc) {
+          throw (exc.getCause() instanceof Exception) ? (Exception) exc.getCause() : exc;
+        }
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+}
@@ -0,0 +1,171 @@
+package scala_maven;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.codehaus.plexus.util.SelectorUtils;
+
+/**
+ * {@link SourceWatcher} based on the file-system watch service of the JVM (jdk 7+).
+ *
+ * This class should only be loaded when java.nio.file is available (see {@link SourceWatcher#create(List, String[], String[])}).
+ */
+class NioSourceWatcher extends SourceWatcher {
+
+    /**
+     * Time without new event to wait before reporting changes (to coalesce several events).
+     */
+    static final long QUIET_PERIOD = 100;
+
+    private final WatchService _watchService;
+    private final Map<WatchKey, Path> _dirs = new HashMap<WatchKey, Path>();
+    private final List<Path> _roots = new ArrayList<Path>();
+    private final String[] _includes;
+    private final String[] _excludes;
+
+    /** true if some directories are not registered (changes are then polled) */
+    private boolean _unwatchedDirs = false;
+
+    NioSourceWatcher(List<File> roots, String[] includes, String[] excludes) throws IOException {
+        _watchService = FileSystems.getDefault().newWatchService();
+        _includes = normalize(includes);
+        _excludes = normalize(excludes);
+        try {
+            for (File root : roots) {
+                Path dir = root.toPath();
+                _roots.add(dir);
+                registerAll(dir);
+            }
+        } catch (IOException exc) {
+            close();
+            throw exc;
+        }
+    }
+
+    /**
+     * @return false if the watch service of the platform is implemented by polling (like on Mac OS X, where changes are detected after seconds).
+     */
+    boolean isNative() {
+        return !_watchService.getClass().getName().contains("Polling");
+    }
+
+    @Override
+    void waitForChanges() throws Exception {
+        boolean changed = false;
+        WatchKey key = take();
+        while (true) {
+            if (key == null) {
+                // poll interval elapsed (some directories are not watched)
+                return;
+            }
+            changed = process(key) || changed;
+            key = _watchService.poll(QUIET_PERIOD, TimeUnit.MILLISECONDS);
+            if (key == null) {
+                if (changed) {
+                    return;
+                }
+                key = take();
+            }
+        }
+    }
+
+    /**
+     * Waits for the next event, or (if a new directory can't be watched) at most for the poll interval.
+     *
+     * @return the key of the event, or null if the poll interval elapsed
+     */
+    private WatchKey take() throws InterruptedException {
+        if (!_unwatchedDirs) {
+            return _watchService.take();
+        }
+        return _watchService.poll(POLL_INTERVAL, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    void close() {
+        try {
+            _watchService.close();
+        } catch (IOException exc) {
+            // ignore
+        }
+    }
+
+    private boolean process(WatchKey key) {
+        boolean changed = false;
+        Path dir = _dirs.get(key);
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW || dir == null) {
+                changed = true;
+                continue;
+            }
+            Path child = dir.resolve((Path) event.context());
+            if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && child.toFile().isDirectory()) {
+                // the directory could already contain sources (eg created by a checkout)
+                try {
+                    registerAll(child);
+                } catch (IOException exc) {
+                    // too many directories to watch (inotify limit,...): poll
+                    _unwatchedDirs = true;
+                }
+                changed = true;
+            } else if (_dirs.containsValue(child) || isSource(child)) {
+                changed = true;
+            }
+        }
+        if (!key.reset()) {
+            _dirs.remove(key);
+        }
+        return changed;
+    }
+
+    private void registerAll(Path dir) throws IOException {
+        WatchKey key = dir.register(_watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+        _dirs.put(key, dir);
+        File[] children = dir.toFile().listFiles();
+        if (children != null) {
+            for (File child : children) {
+                if (child.isDirectory()) {
+                    registerAll(child.toPath());
+                }
+            }
+        }
+    }
+
+    private boolean isSource(Path file) {
+        for (Path root : _roots) {
+            if (file.startsWith(root)) {
+                String relative = root.relativize(file).toString();
+                return matchAny(_includes, relative) && !matchAny(_excludes, relative);
+            }
+        }
+        return false;
+    }
+
+    private static boolean matchAny(String[] patterns, String path) {
+        for (String pattern : patterns) {
+            if (SelectorUtils.matchPath(pattern, path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String[] normalize(String[] patterns) {
+        String[] back = new String[patterns.length];
+        for (int i = 0; i < patterns.length; i++) {
+            back[i] = patterns[i].replace('/', File.separatorChar).replace('\\', File.separatorChar);
+        }
+        return back;
+    }
+}
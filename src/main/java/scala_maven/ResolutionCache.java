@@ -0,0 +1,95 @@
+package scala_maven;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.execution.MavenExecutionRequest;
+import org.apache.maven.execution.MavenSession;
+
+/**
+ * Results of the resolution of the tools artifacts (scala library, compiler and their dependencies, compiler plugins,...),
+ * shared by the goals and modules of a build (the resolution of the same artifacts costs hundreds of ms per goal,
+ * even offline).
+ *
+ * Entries are keyed by "groupId:artifactId:version:classifier:type".
+ */
+class ResolutionCache {
+
+    /**
+     * Caches by build, keyed by the request of the session: shared by the clones of the session made for each module
+     * with "mvn -T" (weak keys: the request of an embedded maven is released after the build).
+     */
+    private static final Map<MavenExecutionRequest, ResolutionCache> _caches = new WeakHashMap<MavenExecutionRequest, ResolutionCache>();
+
+    private final Map<String, File> _files = new HashMap<String, File>();
+    private final Map<String, Set<Artifact>> _dependencies = new HashMap<String, Set<Artifact>>();
+    private final Map<String, Set<String>> _paths = new HashMap<String, Set<String>>();
+
+    /**
+     * @return the cache of the build of the session, or a new (not shared) cache if the session is null
+     */
+    static ResolutionCache of(MavenSession session) {
+        if (session == null) {
+            return new ResolutionCache();
+        }
+        synchronized (_caches) {
+            ResolutionCache back = _caches.get(session.getRequest());
+            if (back == null) {
+                back = new ResolutionCache();
+                _caches.put(session.getRequest(), back);
+            }
+            return back;
+        }
+    }
+
+    static String keyOf(Artifact artifact) {
+        return keyOf(artifact.getGroupId(), artifact.getArtifactId(), artifact.getVersion(), artifact.getClassifier(), artifact.getType());
+    }
+
+    static String keyOf(String groupId, String artifactId, String version, String classifier, String type) {
+        return groupId + ':' + artifactId + ':' + version + ':' + ((classifier == null) ? "" : classifier) + ':' + type;
+    }
+
+    /**
+     * @return the resolved file of the artifact, or null if not resolved yet
+     */
+    synchronized File getFile(String key) {
+        return _files.get(key);
+    }
+
+    synchronized void putFile(String key, File file) {
+        _files.put(key, file);
+    }
+
+    /**
+     * @return the resolved (transitive) dependencies of the artifact, or null if not resolved yet
+     */
+    synchronized Set<Artifact> getDependencies(String key) {
+        return _dependencies.get(key);
+    }
+
+    synchronized Set<Artifact> putDependencies(String key, Set<Artifact> dependencies) {
+        Set<Artifact> back = Collections.unmodifiableSet(new LinkedHashSet<Artifact>(dependencies));
+        _dependencies.put(key, back);
+        return back;
+    }
+
+    /**
+     * @return the paths computed for the key (compiler plugins,...), or null if not computed yet
+     */
+    synchronized Set<String> getPaths(String key) {
+        return _paths.get(key);
+    }
+
+    synchronized Set<String> putPaths(String key, Set<String> paths) {
+        Set<String> back = Collections.unmodifiableSet(new LinkedHashSet<String>(paths));
+        _paths.put(key, back);
+        return back;
+    }
+}
@@ -1,15 +1,22 @@
 package scala_maven;
 
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.execution.MavenExecutionRequest;
 import org.apache.maven.model.Plugin;
 import org.apache.maven.plugin.descriptor.PluginDescriptor;
 import org.apache.maven.project.MavenProject;
 import org.codehaus.plexus.util.StringUtils;
 import org.codehaus.plexus.util.xml.Xpp3Dom;
 import sbt_inc.SbtIncrementalCompiler;
+import sbt_inc.ZincServer;
 import scala_maven_executions.JavaMainCaller;
+import scala_maven_executions.JavaMainCallerByDaemon;
+import scala_maven_executions.JavaMainCallerByFork;
 import scala_maven_executions.MainHelper;
+import util.JavaLocator;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.*;
 
 /**
@@ -28,7 +35,8 @@ public abstract class ScalaCompilerSupport extends ScalaSourceMojoSupport {
 
     /**
      * Recompile mode to use when sources were previously compiled and there is at least one change:
-     * "modified-only" => only modified sources are recompiled (pre 2.13 behavior), "all" => all sources are recompiled,
+     * "modified-only" => only modified sources and sources depending on them (found from the previously generated classes) are recompiled,
+     * "all" => all sources are recompiled,
      * "incremental" => incrementally recompile modified sources and other affected sources.
      *
      * @parameter property="recompileMode" default-value="all"
@@ -50,8 +58,19 @@ public abstract class ScalaCompilerSupport extends ScalaSourceMojoSupport {
 
     private long _lastCompileAt = -1;
 
+    /**
+     * State of the sources at the last compilation (per output directory), used when compiling in loop.
+     */
+    private final Map<File, SourceManifest> _lastCompiledSources = new HashMap<File, SourceManifest>();
+
     private SbtIncrementalCompiler incremental;
 
+    /**
+     * Analysis cache maps by build, keyed by the request of the session: shared by the clones of the session made
+     * for each module with "mvn -T" (weak keys: the request of an embedded maven is released after the build).
+     */
+    private static final Map<MavenExecutionRequest, Map<File, File>> _analysisCacheMaps = new WeakHashMap<MavenExecutionRequest, Map<File, File>>();
+
     /**
      * Analysis cache file for incremental recompilation.
      */
@@ -80,6 +99,22 @@ public abstract class ScalaCompilerSupport extends ScalaSourceMojoSupport {
      */
     private int zincPort;
 
+    /**
+     * Start a zinc server (with the jvm of the toolchain and jvmArgs) when useZincServer is set and no server answers on zincPort.
+     * The server is shared by the next builds and stops itself after zincServerIdleTimeout minutes without compilation.
+     * It listens on the loopback interface only, but without authentication: any local user can run compilations with it.
+     *
+     * @parameter property="startZincServer" default-value="false"
+     */
+    private boolean startZincServer;
+
+    /**
+     * Time (in minutes) without compilation after which a zinc server started by the plugin stops.
+     *
+     * @parameter property="zincServerIdleTimeout" default-value="30"
+     */
+    private int zincServerIdleTimeout;
+
     /**
      * Additional parameter to use to call zinc server
      * It is a pipe '|' separated list of arguments, so it can be used from command line ("-DaddZincArgs=arg1|arg2|arg3|...").
@@ -87,6 +122,39 @@ public abstract class ScalaCompilerSupport extends ScalaSourceMojoSupport {
      */
     private String addZincArgs = "";
 
+    /**
+     * Max number of compilations run concurrently by the plugin (eg when maven is run with -T).
+     * The pool of compilers is shared by every module of the build, the first compilation defines its size.
+     * 0 means half the number of available processors.
+     *
+     * @parameter property="compilerPoolSize" default-value="0"
+     */
+    private int compilerPoolSize;
+
+    /**
+     * Compiles (when forked and not "incremental") with a long-lived compile daemon instead of a new scalac process.
+     * A daemon is started by the first compilation, and shared by the next ones with the same jvm arguments
+     * and compiler (including the compilations of the next maven invocations), so scalac stays loaded and warm.
+     *
+     * @parameter property="useCompileDaemon" default-value="false"
+     */
+    protected boolean useCompileDaemon;
+
+    /**
+     * Time (in minutes) without compilation after which the compile daemon stops.
+     *
+     * @parameter property="compileDaemonIdleTimeout" default-value="30"
+     */
+    private int compileDaemonIdleTimeout;
+
+    /**
+     * Max number of times a warning message (same message in other places, like deprecations or lint warnings) is displayed,
+     * the next ones are hidden and counted at the end of the compilation. 0 to display every warning.
+     *
+     * @parameter property="maven.scala.maxSameWarnings" default-value="0"
+     */
+    private int maxSameWarnings;
+
     @Override
     protected void doExecute() throws Exception {
         if (getLog().isDebugEnabled()) {
@@ -125,11 +193,17 @@ public abstract class ScalaCompilerSupport extends ScalaSourceMojoSupport {
             _lastCompileAt = lastCompilationInfo.getLastSuccessfullTS();
         }
 
-        List<File> files = getFilesToCompile(sourceRootDirs, _lastCompileAt);
+        SourceManifest previousSources = _lastCompiledSources.get(outputDir);
+        if (previousSources == null) {
+            previousSources = lastCompilationInfo.getLastSuccessfullSources();
+        }
 
-        if (files == null) {
+        List<File> sourceFiles = findSourceWithFilters(sourceRootDirs);
+        if (sourceFiles.size() == 0) {
             return -1;
         }
+        SourceManifest currentSources = ((previousSources != null) ? previousSources : new SourceManifest()).scan(sourceFiles);
+        List<File> files = getFilesToCompile(sourceRootDirs, sourceFiles, outputDir, previousSources, currentSources);
 
         if (files.size() < 1) {
             return 0;
@@ -143,30 +217,44 @@ public abstract class ScalaCompilerSupport extends ScalaSourceMojoSupport {
             // if compileInLoop, do not invoke incrementalCompile when there's no change
             int retCode = incrementalCompile(classpathElements, sourceRootDirs, outputDir, analysisCacheFile, compileInLoop);
             _lastCompileAt = t1;
+            _lastCompiledSources.put(outputDir, currentSources);
             if (retCode == 1) {
-                lastCompilationInfo.setLastSuccessfullTS(t1);
+                lastCompilationInfo.setLastSuccessfull(t1, currentSources);
             }
             return retCode;
         }
 
         getLog().info(String.format("Compiling %d source files to %s at %d", files.size(), outputDir.getAbsolutePath(), t1));
         JavaMainCaller jcmd = getScalaCommand();
+        if (useCompileDaemon && (jcmd instanceof JavaMainCallerByFork)) {
+            jcmd = new JavaMainCallerByDaemon((JavaMainCallerByFork) jcmd, new File(localRepo.getBasedir(), ".cache/scala-maven-plugin/daemons"), compileDaemonIdleTimeout);
+        }
         jcmd.redirectToLog();
+        jcmd.hideRepeatedWarnings(maxSameWarnings);
         if (!classpathElements.isEmpty()) jcmd.addArgs("-classpath", MainHelper.toMultiPath(classpathElements));
         jcmd.addArgs("-d", outputDir.getAbsolutePath());
         //jcmd.addArgs("-sourcepath", sourceDir.getAbsolutePath());
         for (File f : files) {
             jcmd.addArgs(f.getAbsolutePath());
         }
-        if (jcmd.run(displayCmd, !compileInLoop)) {
-          lastCompilationInfo.setLastSuccessfullTS(t1);
-        }
-        else {
-            compileErrors = true;
+        CompilerPool pool = CompilerPool.get(compilerPoolSize, getLog());
+        long waited = pool.acquire(!fork);
+        long t2 = System.currentTimeMillis();
+        try {
+            if (jcmd.run(displayCmd, !compileInLoop)) {
+              lastCompilationInfo.setLastSuccessfull(t1, currentSources);
+            }
+            else {
+                compileErrors = true;
+            }
+        } finally {
+            pool.release(!fork);
+            logPoolUsage(pool, waited, System.currentTimeMillis() - t2);
         }
         getLog().info(String.format("prepare-compile in %d s", (t1 - t0) / 1000));
         getLog().info(String.format("compile in %d s", (System.currentTimeMillis() - t1) / 1000));
         _lastCompileAt = t1;
+        _lastCompiledSources.put(outputDir, currentSources);
         return files.size();
     }
 
@@ -181,19 +269,20 @@ public abstract class ScalaCompilerSupport extends ScalaSourceMojoSupport {
         compileErrors = false;
     }
 
-    protected List<File> getFilesToCompile(List<File> sourceRootDirs, long lastSuccessfullCompileTime) throws Exception {
-        List<File> sourceFiles = findSourceWithFilters(sourceRootDirs);
-        if (sourceFiles.size() == 0) {
-            return null;
-        }
-
+    /**
+     * @param previousSources state of the sources at the last successful compilation, or null if unknown (then timestamps are used)
+     * @param currentSources current state of the sources
+     */
+    protected List<File> getFilesToCompile(List<File> sourceRootDirs, List<File> sourceFiles, File outputDir, SourceManifest previousSources, SourceManifest currentSources) throws Exception {
         // filter uptodate
         // filter is not applied to .java, because scalac failed to used existing .class for unmodified .java
         //   failed with "error while loading Xxx, class file '.../target/classes/.../Xxxx.class' is broken"
         //   (restore how it work in 2.11 and failed in 2.12)
-        //TODO a better behavior : if there is at least one .scala to compile then add all .java, if there is at least one .java then add all .scala (because we don't manage class dependency)
+        // in "modified-only" mode, sources depending on modified sources are found from the classes of the previous compilation
         List<File> files = new ArrayList<File>(sourceFiles.size());
-        if (_lastCompileAt > 0 || (!ALL.equals(recompileMode) && (lastSuccessfullCompileTime > 0))) {
+        if (_lastCompileAt > 0) {
+            // a removed source requires to recompile the sources that used it
+            boolean removedFiles = (previousSources != null) && currentSources.hasRemovedFilesSince(previousSources);
             ArrayList<File> modifiedScalaFiles = new ArrayList<File>(sourceFiles.size());
             ArrayList<File> modifiedJavaFiles = new ArrayList<File>(sourceFiles.size());
             ArrayList<File> allJavaFiles = new ArrayList<File>(sourceFiles.size());
@@ -201,7 +290,8 @@ public abstract class ScalaCompilerSupport extends ScalaSourceMojoSupport {
                 if (f.getName().endsWith(".java")) {
                     allJavaFiles.add(f);
                 }
-                if (f.lastModified() >= lastSuccessfullCompileTime) {
+                boolean modified = (previousSources != null) ? currentSources.isModifiedSince(f, previousSources) : (f.lastModified() >= _lastCompileAt);
+                if (modified) {
                     if (f.getName().endsWith(".java")) {
                         modifiedJavaFiles.add(f);
                     } else {
@@ -209,10 +299,20 @@ public abstract class ScalaCompilerSupport extends ScalaSourceMojoSupport {
                     }
                 }
             }
-            if ((modifiedScalaFiles.size() != 0) || (modifiedJavaFiles.size() != 0)) {
-                if ((modifiedScalaFiles.size() != 0) && MODIFIED_ONLY.equals(recompileMode)) {
+            if (removedFiles || (modifiedScalaFiles.size() != 0) || (modifiedJavaFiles.size() != 0)) {
+                Set<File> dependentFiles = null;
+                if (!removedFiles && MODIFIED_ONLY.equals(recompileMode)) {
+                    List<File> modifiedFiles = new ArrayList<File>(modifiedScalaFiles);
+                    modifiedFiles.addAll(modifiedJavaFiles);
+                    dependentFiles = findDependentFiles(sourceRootDirs, sourceFiles, modifiedFiles, outputDir, previousSources);
+                }
+                if (dependentFiles != null) {
                     files.addAll(allJavaFiles);
-                    files.addAll(modifiedScalaFiles);
+                    for (File f : sourceFiles) {
+                        if (!f.getName().endsWith(".java") && dependentFiles.contains(f)) {
+                            files.add(f);
+                        }
+                    }
                     notifyCompilation(files);
                 } else {
                     files.addAll(sourceFiles);
@@ -226,6 +326,48 @@ public abstract class ScalaCompilerSupport extends ScalaSourceMojoSupport {
         return files;
     }
 
+    /**
+     * @return the modified sources and the sources depending (transitively) on them, according to the classes generated by the previous compilation,
+     *         or null if the dependencies of a modified source are unknown.
+     */
+    private Set<File> findDependentFiles(List<File> sourceRootDirs, List<File> sourceFiles, List<File> modifiedFiles, File outputDir, SourceManifest previousSources) throws Exception {
+        if (previousSources == null) {
+            return null;
+        }
+        long t0 = System.currentTimeMillis();
+        ClassDependencyIndex index;
+        try {
+            index = ClassDependencyIndex.build(outputDir);
+        } catch (IOException exc) {
+            // unsupported class file (new constant pool tag,...): recompile every source
+            getLog().debug("can't read the dependencies of the classes of " + outputDir + ": " + exc);
+            return null;
+        } catch (RuntimeException exc) {
+            getLog().debug("can't read the dependencies of the classes of " + outputDir + ": " + exc);
+            return null;
+        }
+        List<String> modifiedKeys = new ArrayList<String>(modifiedFiles.size());
+        for (File f : modifiedFiles) {
+            String key = ClassDependencyIndex.sourceKeyOf(f, sourceRootDirs);
+            // a new source has no dependents, but a compiled source without known classes (package doesn't match directory,...) could have some
+            if (key == null || (!index.defines(key) && previousSources.contains(f))) {
+                getLog().debug("dependencies of " + f + " are unknown");
+                return null;
+            }
+            modifiedKeys.add(key);
+        }
+        Set<String> dependentKeys = index.dependentSourcesOf(modifiedKeys);
+        Set<File> back = new HashSet<File>(modifiedFiles);
+        for (File f : sourceFiles) {
+            String key = ClassDependencyIndex.sourceKeyOf(f, sourceRootDirs);
+            if (key != null && dependentKeys.contains(key)) {
+                back.add(f);
+            }
+        }
+        getLog().debug(String.format("%d sources depend on the %d modified sources (found in %d ms)", back.size() - modifiedFiles.size(), modifiedFiles.size(), System.currentTimeMillis() - t0));
+        return back;
+    }
+
     private void notifyCompilation(List<File> files) throws Exception {
         if (notifyCompilation) {
             for (File f : files) {
@@ -240,14 +382,17 @@ public abstract class ScalaCompilerSupport extends ScalaSourceMojoSupport {
         for (File f : sourceRootDirs) {
           hash.append(f.toString());
         }
-        return new LastCompilationInfo(new File(outputDir.getAbsolutePath() + "." + hash.toString().hashCode() + ".timestamp"), outputDir);
+        String basePath = outputDir.getAbsolutePath() + "." + hash.toString().hashCode();
+        return new LastCompilationInfo(new File(basePath + ".timestamp"), new File(basePath + ".sources"), outputDir);
       }
 
       private final File _lastCompileAtFile;
+      private final File _lastSourcesFile;
       private final File _outputDir;
 
-      private LastCompilationInfo(File f, File outputDir) {
+      private LastCompilationInfo(File f, File sourcesFile, File outputDir) {
         _lastCompileAtFile = f;
+        _lastSourcesFile = sourcesFile;
         _outputDir = outputDir;
       }
 
@@ -265,6 +410,18 @@ public abstract class ScalaCompilerSupport extends ScalaSourceMojoSupport {
         }
         _lastCompileAtFile.setLastModified(v);
       }
+
+      /**
+       * @return the state of the sources at the last successful compilation, or null if unknown
+       */
+      SourceManifest getLastSuccessfullSources() throws Exception {
+        return (getLastSuccessfullTS() > 0) ? SourceManifest.load(_lastSourcesFile) : null;
+      }
+
+      void setLastSuccessfull(long v, SourceManifest sources) throws Exception {
+        setLastSuccessfullTS(v);
+        sources.save(_lastSourcesFile);
+      }
     }
 
     //
@@ -278,6 +435,43 @@ public abstract class ScalaCompilerSupport extends ScalaSourceMojoSupport {
             return -1;
         }
 
+        classpathElements.remove(outputDir.getAbsolutePath());
+        List<String> scalacOptions = getScalaOptions();
+        List<String> javacOptions = getJavacOptions();
+
+        // skip the compiler when nothing changed since the last successful compilation
+        File fingerprintFile = new File(cacheFile.getPath() + ".fingerprint");
+        CompileFingerprint lastFingerprint = CompileFingerprint.load(fingerprintFile);
+        List<String> options = new ArrayList<String>(scalacOptions);
+        options.addAll(javacOptions);
+        options.add(String.valueOf(compileOrder));
+        options.add(getCompilerJar().getPath());
+        options.add(getLibraryJar().getPath());
+        options.add(outputDir.getPath());
+        options.add(String.valueOf(JavaLocator.findHomeFromToolchain(toolchainManager.getToolchainFromBuildContext("jdk", session))));
+        options.add(String.valueOf(addZincArgs));
+        // the content of the jars of the compiler and of its plugins (snapshots,...) is part of the inputs
+        List<String> inputJars = new ArrayList<String>(classpathElements);
+        for (File dep : getCompilerDependencies()) {
+            options.add(dep.getPath());
+            inputJars.add(dep.getPath());
+        }
+        for (String option : scalacOptions) {
+            if (option.startsWith("-Xplugin:")) {
+                inputJars.add(option.substring("-Xplugin:".length()));
+            }
+        }
+        long t0 = System.currentTimeMillis();
+        CompileFingerprint fingerprint = CompileFingerprint.compute(lastFingerprint, options, inputJars, sources);
+        if (getLog().isDebugEnabled()) {
+            getLog().debug(String.format("fingerprint of the compilation inputs computed in %d ms", System.currentTimeMillis() - t0));
+        }
+        // class files deleted or modified since the compilation (output directory cleaned by hand,...) require a compilation
+        if (lastFingerprint != null && fingerprint.isUpToDate(lastFingerprint, cacheFile, outputDir)) {
+            return 0;
+        }
+        fingerprintFile.delete();
+
         if (incremental == null) {
             File libraryJar = getLibraryJar();
             File compilerJar = getCompilerJar();
@@ -291,28 +485,74 @@ public abstract class ScalaCompilerSupport extends ScalaSourceMojoSupport {
             File xsbtiJar = getPluginArtifactJar(sbtGroupId, xsbtiArtifactId, sbtVersion);
             List<String> zincArgs = StringUtils.isEmpty(addZincArgs) ? new LinkedList<String>() : (List<String>) Arrays.asList(StringUtils.split(addZincArgs, "|"));
             File interfaceSrcJar = getPluginArtifactJar(sbtGroupId, compilerInterfaceArtifactId, sbtVersion, compilerInterfaceClassifier);
-           	incremental = new SbtIncrementalCompiler(useZincServer, zincPort, libraryJar, compilerJar, extraJars, xsbtiJar, interfaceSrcJar, getLog(), zincArgs);
+            boolean embeddedServer = useZincServer && startZincServer;
+            if (embeddedServer) {
+                String javaExec = JavaLocator.findExecutableFromToolchain(toolchainManager.getToolchainFromBuildContext("jdk", session));
+                List<String> serverJvmArgs = (jvmArgs == null) ? new ArrayList<String>() : Arrays.asList(jvmArgs);
+                ZincServer.require(zincPort, javaExec, serverJvmArgs, getZincServerClasspath(), zincServerIdleTimeout, getLog());
+            }
+            incremental = new SbtIncrementalCompiler(useZincServer, embeddedServer, zincPort, libraryJar, compilerJar, extraJars, xsbtiJar, interfaceSrcJar, getLog(), zincArgs);
         }
 
-        classpathElements.remove(outputDir.getAbsolutePath());
-        List<String> scalacOptions = getScalaOptions();
-        List<String> javacOptions = getJavacOptions();
         Map<File, File> cacheMap = getAnalysisCacheMap();
 
+        CompilerPool pool = CompilerPool.get(compilerPoolSize, getLog());
+        boolean inProcess = !incremental.isUseServer();
+        long waited = pool.acquire(inProcess);
+        t0 = System.currentTimeMillis();
         try {
             incremental.compile(project.getBasedir(), classpathElements, sources, outputDir, scalacOptions, javacOptions, cacheFile, cacheMap, compileOrder, toolchainManager.getToolchainFromBuildContext("jdk", session));
+            fingerprint.setOutputMarker(cacheFile, outputDir);
+            fingerprint.save(fingerprintFile);
         } catch (xsbti.CompileFailed e) {
             if (compileInLoop) {
                 compileErrors = true;
             } else {
                 throw e;
             }
+        } finally {
+            pool.release(inProcess);
+            logPoolUsage(pool, waited, System.currentTimeMillis() - t0);
         }
 
         return 1;
     }
 
+    /**
+     * @return the jars of zinc (from the dependencies of the plugin) and of the nailgun server
+     */
+    private List<File> getZincServerClasspath() throws Exception {
+        List<File> back = new ArrayList<File>();
+        for (Artifact art : pluginArtifacts) {
+            String groupId = art.getGroupId();
+            if (art.getClassifier() == null && ("com.typesafe.zinc".equals(groupId) || SbtIncrementalCompiler.SBT_GROUP_ID.equals(groupId) || "org.scala-lang".equals(groupId))) {
+                back.add(art.getFile());
+            }
+        }
+        back.add(getArtifactJar(ZincServer.NAILGUN_GROUP_ID, ZincServer.NAILGUN_ARTIFACT_ID, ZincServer.NAILGUN_VERSION));
+        return back;
+    }
+
+    private void logPoolUsage(CompilerPool pool, long waited, long duration) {
+        getLog().info(String.format("%s: waited %d ms for a compiler (pool size: %d), compiled in %d ms", project.getArtifactId(), waited, pool.size(), duration));
+    }
+
+    /**
+     * @return the analysis cache file of the classes directories of the reactor, computed once per build
+     * (the map is the same for every module and every compilation)
+     */
     protected Map<File, File> getAnalysisCacheMap() {
+        synchronized (_analysisCacheMaps) {
+            Map<File, File> back = _analysisCacheMaps.get(session.getRequest());
+            if (back == null) {
+                back = Collections.unmodifiableMap(computeAnalysisCacheMap());
+                _analysisCacheMaps.put(session.getRequest(), back);
+            }
+            return back;
+        }
+    }
+
+    private Map<File, File> computeAnalysisCacheMap() {
         HashMap<File, File> map = new HashMap<File, File>();
         String scalaPluginKey = ((PluginDescriptor) getPluginContext().get("pluginDescriptor")).getPluginLookupKey();
         for (MavenProject project1 : reactorProjects) {
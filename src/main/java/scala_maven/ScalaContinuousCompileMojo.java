@@ -57,8 +57,8 @@ public class ScalaContinuousCompileMojo extends ScalaCompilerSupport {
     protected File testAnalysisCacheFile;
 
     /**
-     * Define if fsc should be used, else scalac is used.
-     * fsc => scala.tools.nsc.CompileClient, scalac => scala.tools.nsc.Main.
+     * Define if a compile daemon should be used (see useCompileDaemon), else a new scalac is forked for each compilation.
+     * The daemon is kept alive after the end of cc, so the next run starts with a warm compiler.
      *
      * @parameter property="fsc" default-value="true"
      */
@@ -131,49 +131,54 @@ public class ScalaContinuousCompileMojo extends ScalaCompilerSupport {
         testAnalysisCacheFile = FileUtils.fileOf(testAnalysisCacheFile, useCanonicalPath);
 
         if (useFsc && !INCREMENTAL.equals(recompileMode)) {
-            getLog().info("use fsc for compilation");
-            scalaClassName = "scala.tools.nsc.CompileClient";
-            if (!once) {
-                StopServer stopServer = new StopServer();
-                stopServer.run();
-                startNewCompileServer();
-                Runtime.getRuntime().addShutdownHook(stopServer);
-            } else {
-                startNewCompileServer();
-            }
+            getLog().info("use a compile daemon for compilation");
+            useCompileDaemon = true;
         }
 
-        getLog().info("wait for files to compile...");
-        do {
-            clearCompileErrors();
-
-            int nbFile = 0;
-            if (!mainSourceDirs.isEmpty()) {
-                nbFile = compile(mainSourceDirs, mainOutputDir, analysisCacheFile, project.getCompileClasspathElements(), true);
-                // If there are no source files, the compile method returns -1. Thus, to make sure we
-                // still run the tests if there are test sources, reset nbFile to zero.
-                if (nbFile == -1)
-                    nbFile = 0;
-            }
-            if (!testSourceDirs.isEmpty()) {
-                nbFile += compile(testSourceDirs, testOutputDir, testAnalysisCacheFile, project.getTestClasspathElements(), true);
-            }
-            if (nbFile > 0) {
-                if (!hasCompileErrors()) {
-                    postCompileActions();
-                } else {
-                    getLog().info("Not running test cases due to compile error");
+        SourceWatcher watcher = null;
+        if (!once) {
+            List<File> watchedDirs = new ArrayList<File>(mainSourceDirs);
+            watchedDirs.addAll(testSourceDirs);
+            initFilters();
+            watcher = SourceWatcher.create(watchedDirs, includes.toArray(new String[includes.size()]), excludes.toArray(new String[excludes.size()]));
+        }
+
+        try {
+            getLog().info("wait for files to compile...");
+            do {
+                clearCompileErrors();
+
+                int nbFile = 0;
+                if (!mainSourceDirs.isEmpty()) {
+                    nbFile = compile(mainSourceDirs, mainOutputDir, analysisCacheFile, project.getCompileClasspathElements(), true);
+                    // If there are no source files, the compile method returns -1. Thus, to make sure we
+                    // still run the tests if there are test sources, reset nbFile to zero.
+                    if (nbFile == -1)
+                        nbFile = 0;
+                }
+                if (!testSourceDirs.isEmpty()) {
+                    nbFile += compile(testSourceDirs, testOutputDir, testAnalysisCacheFile, project.getTestClasspathElements(), true);
                 }
-            }
-            if (!once) {
                 if (nbFile > 0) {
-                    getLog().info("wait for files to compile...");
-                    Thread.sleep(5000);
-                } else {
-                    Thread.sleep(3000);
+                    if (!hasCompileErrors()) {
+                        postCompileActions();
+                    } else {
+                        getLog().info("Not running test cases due to compile error");
+                    }
                 }
+                if (!once) {
+                    if (nbFile > 0) {
+                        getLog().info("wait for files to compile...");
+                    }
+                    // changes made during the compilation are already queued by the watcher
+                    watcher.waitForChanges();
+                }
+            } while (!once);
+        } finally {
+            if (watcher != null) {
+                watcher.close();
             }
-        } while (!once);
+        }
     }
 
 
@@ -183,38 +188,4 @@ public class ScalaContinuousCompileMojo extends ScalaCompilerSupport {
      */
     protected void postCompileActions() throws Exception {
     }
-
-    private void startNewCompileServer() throws Exception {
-        File serverTagFile = new File(mainOutputDir + ".server");
-        if (serverTagFile.exists()) {
-            return;
-        }
-        getLog().info("start server...");
-        JavaMainCaller jcmd = getEmptyScalaCommand("scala.tools.nsc.MainGenericRunner");
-        jcmd.addArgs("scala.tools.nsc.CompileServer");
-        jcmd.addJvmArgs(jvmArgs);
-        jcmd.addArgs(args);
-        jcmd.spawn(displayCmd);
-        FileUtils.fileWrite(serverTagFile.getAbsolutePath(), ".");
-        Thread.sleep(1000); //HACK To wait startup time of server (avoid first fsc command to failed to contact server)
-    }
-
-    private class StopServer extends Thread {
-        @Override
-        public void run() {
-            try {
-                getLog().info("stop server(s)...");
-                JavaMainCaller jcmd = getScalaCommand();
-                jcmd.addArgs("-shutdown");
-                jcmd.run(displayCmd, false);
-                File serverTagFile = new File(mainOutputDir + ".server");
-                if (serverTagFile.exists()) {
-                    serverTagFile.delete();
-                }
-            } catch (Exception exc) {
-                //getLog().warn(exc);
-            }
-        }
-    }
-
 }
@@ -2,6 +2,9 @@ package scala_maven;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
 
@@ -12,9 +15,11 @@ import org.apache.maven.model.Resource;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.project.MavenProjectHelper;
 import org.apache.maven.reporting.MavenReportException;
+import org.codehaus.plexus.archiver.Archiver;
 import org.codehaus.plexus.archiver.ArchiverException;
 import org.codehaus.plexus.archiver.jar.JarArchiver;
 import org.codehaus.plexus.archiver.jar.ManifestException;
+import org.codehaus.plexus.util.DirectoryScanner;
 
 /**
  * Creates a jar of the non-aggregated scaladoc and attaches it
@@ -25,8 +30,6 @@ import org.codehaus.plexus.archiver.jar.ManifestException;
  */
 public class ScalaDocJarMojo extends ScalaDocMojo {
 
-  private static final String[] DEFAULT_INCLUDES = new String[] { "**/**" };
-  private static final String[] DEFAULT_EXCLUDES = new String[] {};
   /**
    * The Jar archiver.
    *
@@ -99,6 +102,22 @@ public class ScalaDocJarMojo extends ScalaDocMojo {
    */
   private boolean useDefaultManifestFile;
 
+  /**
+   * Version of the plugin (the jar is created again by a new version of the plugin).
+   *
+   * @parameter default-value="${plugin.version}"
+   * @readonly
+   */
+  private String pluginVersion;
+
+  /**
+   * Compress the entries of the jar. Without compression (store only) the jar is bigger, but it is created faster
+   * (the scaladoc of a large project is made of tens of thousands of small files).
+   *
+   * @parameter property="maven.scaladoc.jar.compress" default-value="true"
+   */
+  private boolean compress = true;
+
   /**
    * Specifies if the build will fail if there are errors during javadoc execution or not.
    *
@@ -116,7 +135,22 @@ public class ScalaDocJarMojo extends ScalaDocMojo {
     try {
       generate(null, Locale.getDefault());
       if(reportOutputDirectory.exists()) {
-        File outputFile = generateArchive( reportOutputDirectory, finalName + "-" + getClassifier() + ".jar" );
+        String jarFileName = finalName + "-" + getClassifier() + ".jar";
+        // reuse the jar when the scaladoc and the options of the archive didn't change since it was created
+        File outputFile = new File( jarOutputDirectory, jarFileName );
+        File fingerprintFile = new File( outputFile.getPath() + ".fingerprint" );
+        CompileFingerprint lastFingerprint = CompileFingerprint.load( fingerprintFile );
+        CompileFingerprint fingerprint = computeArchiveFingerprint( lastFingerprint );
+        if ( lastFingerprint != null && fingerprint != null && fingerprint.isUpToDate( lastFingerprint, outputFile ) ) {
+          getLog().info( "scaladoc jar is up to date: " + outputFile );
+        } else {
+          fingerprintFile.delete();
+          outputFile = generateArchive( reportOutputDirectory, jarFileName );
+          if ( fingerprint != null ) {
+            fingerprint.setOutputMarker( outputFile );
+            fingerprint.save( fingerprintFile );
+          }
+        }
         if(!attach ) {
           getLog().info( "NOT adding javadoc to attached artifacts list." );
         } else {
@@ -153,13 +187,33 @@ public class ScalaDocJarMojo extends ScalaDocMojo {
       javadocJar.delete();
     }
     MavenArchiver archiver = new MavenArchiver();
+    jarArchiver.setCompress( compress );
     archiver.setArchiver( jarArchiver );
     archiver.setOutputFile( javadocJar );
     File contentDirectory = javadocFiles;
     if(!contentDirectory.exists()) {
       getLog().warn( "JAR will be empty - no content was marked for inclusion!" );
     } else {
-      archiver.getArchiver().addDirectory( contentDirectory, DEFAULT_INCLUDES, DEFAULT_EXCLUDES );
+      // add the files in a reproducible order, with a fixed mode (reading the modes of the files runs "ls" on unix),
+      // without the default excludes (.svn, .DS_Store,...) like addDirectory
+      DirectoryScanner scanner = new DirectoryScanner();
+      scanner.setBasedir( contentDirectory );
+      scanner.addDefaultExcludes();
+      scanner.scan();
+      String[] paths = scanner.getIncludedFiles();
+      Arrays.sort( paths );
+      for ( String path : paths ) {
+        archiver.getArchiver().addFile( new File( contentDirectory, path ), path.replace( File.separatorChar, '/' ), Archiver.DEFAULT_FILE_MODE );
+      }
+      // the parent directories of the files are added with the files, only the empty ones are missing
+      String[] dirs = scanner.getIncludedDirectories();
+      Arrays.sort( dirs );
+      for ( String dir : dirs ) {
+        String[] children = new File( contentDirectory, dir ).list();
+        if ( dir.length() > 0 && children != null && children.length == 0 ) {
+          archiver.getArchiver().addDirectory( new File( contentDirectory, dir ), dir.replace( File.separatorChar, '/' ) + "/" );
+        }
+      }
     }
     List<Resource> resources = project.getBuild().getResources();
     for ( Resource r : resources ) {
@@ -183,6 +237,38 @@ public class ScalaDocJarMojo extends ScalaDocMojo {
     return javadocJar;
   }
 
+  /**
+   * @return the fingerprint of the content of the jar (the fingerprint of the scaladoc inputs, the resources and the
+   * options of the archive), or null if the scaladoc has no fingerprint (not incremental)
+   */
+  private CompileFingerprint computeArchiveFingerprint( CompileFingerprint previous ) throws Exception {
+    File docFingerprintFile = getDocFingerprintFile( reportOutputDirectory );
+    if ( !docFingerprintFile.exists() ) {
+      return null;
+    }
+    List<String> options = new ArrayList<String>();
+    options.add( pluginVersion );
+    options.add( reportOutputDirectory.getAbsolutePath() );
+    options.add( String.valueOf( compress ) );
+    options.add( String.valueOf( useDefaultManifestFile ) );
+    options.add( String.valueOf( archive.getManifestFile() ) );
+    options.add( String.valueOf( archive.getManifestEntries() ) );
+    options.add( String.valueOf( archive.isCompress() ) );
+    List<String> inputs = new ArrayList<String>();
+    for ( Resource r : project.getBuild().getResources() ) {
+      if ( r.getDirectory().endsWith( "maven-shared-archive-resources" ) ) {
+        inputs.add( r.getDirectory() );
+      }
+    }
+    if ( useDefaultManifestFile ) {
+      inputs.add( defaultManifestFile.getPath() );
+    }
+    if ( archive.getManifestFile() != null ) {
+      inputs.add( archive.getManifestFile().getPath() );
+    }
+    return CompileFingerprint.compute( previous, options, inputs, Collections.singletonList( docFingerprintFile ) );
+  }
+
   protected String getClassifier() {
     return classifier;
   }
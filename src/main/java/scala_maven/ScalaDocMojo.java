@@ -1,5 +1,6 @@
 package scala_maven;
 
+import org.apache.maven.plugin.descriptor.PluginDescriptor;
 import org.apache.maven.project.MavenProject;
 import org.apache.maven.reporting.MavenReport;
 import org.apache.maven.reporting.MavenReportException;
@@ -10,6 +11,7 @@ import scala_maven_executions.MainHelper;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.List;
 import java.util.Locale;
@@ -179,6 +181,14 @@ public class ScalaDocMojo extends ScalaSourceMojoSupport implements MavenReport
      */
     protected File sourceDir;
 
+    /**
+     * Skip the generation of the scaladoc when the sources, the classpath and the options didn't change since the last
+     * generation (checksums of the inputs are stored in a ".fingerprint" file next to the output directory).
+     *
+     * @parameter property="maven.scaladoc.incremental" default-value="true"
+     */
+    protected boolean incrementalDoc = true;
+
     private List<File> _sourceFiles;
 
     @Override
@@ -297,9 +307,7 @@ public class ScalaDocMojo extends ScalaSourceMojoSupport implements MavenReport
         if (isPreviousScala271){
             jcmd.addArgs("-Ydoc");
         }
-        // copy the classpathElements to not modify the global project definition see https://github.com/davidB/maven-scala-plugin/issues/60
-        List<String> paths = new ArrayList<String>(project.getCompileClasspathElements());
-        paths.remove(project.getBuild().getOutputDirectory()); //remove output to avoid "error for" : error:  XXX is already defined as package XXX ... object XXX {
+        List<String> paths = getDocClasspath();
         if (!paths.isEmpty())jcmd.addOption("-classpath", MainHelper.toMultiPath(paths));
         //jcmd.addOption("-sourcepath", sourceDir.getAbsolutePath());
 
@@ -322,6 +330,46 @@ public class ScalaDocMojo extends ScalaSourceMojoSupport implements MavenReport
         return jcmd;
     }
 
+    /**
+     * @return the fingerprint of the inputs of the last generation into reportOutputDir (the file exists only if the
+     * generation was incremental and successful)
+     */
+    protected File getDocFingerprintFile(File reportOutputDir) {
+        return new File(reportOutputDir.getParentFile(), reportOutputDir.getName() + ".fingerprint");
+    }
+
+    private List<String> getDocClasspath() throws Exception {
+        // copy the classpathElements to not modify the global project definition see https://github.com/davidB/maven-scala-plugin/issues/60
+        List<String> paths = new ArrayList<String>(project.getCompileClasspathElements());
+        paths.remove(project.getBuild().getOutputDirectory()); //remove output to avoid "error for" : error:  XXX is already defined as package XXX ... object XXX {
+        return paths;
+    }
+
+    /**
+     * @return the options of the generation (any change of an option requires a new generation)
+     */
+    private List<String> getDocOptions(File reportOutputDir) throws Exception {
+        List<String> options = new ArrayList<String>();
+        options.add(findScalaVersion().toString());
+        options.add(scaladocClassName);
+        options.add(String.valueOf(vscaladocVersion));
+        if (args != null) {
+            options.addAll(Arrays.asList(args));
+        }
+        options.add(String.valueOf(doctitle));
+        options.add(getBottomText());
+        options.add(String.valueOf(charset));
+        options.add(String.valueOf(footer));
+        options.add(String.valueOf(header));
+        options.add(String.valueOf(linksource));
+        options.add(String.valueOf(nocomment));
+        options.add(String.valueOf(stylesheetfile));
+        options.add(String.valueOf(top));
+        options.add(String.valueOf(windowtitle));
+        options.add(reportOutputDir.getAbsolutePath());
+        return options;
+    }
+
     @Override
     public void generate(Sink sink, Locale locale) throws MavenReportException {
         try {
@@ -345,12 +393,26 @@ public class ScalaDocMojo extends ScalaSourceMojoSupport implements MavenReport
 
             List<File> sources = findSourceFiles();
             if (sources.size() > 0) {
-                JavaMainCaller jcmd = getScalaCommand();
-                jcmd.addOption("-d", reportOutputDir.getAbsolutePath());
-                for (File x : sources) {
-                    jcmd.addArgs(FileUtils.pathOf(x, useCanonicalPath));
+                // skip scaladoc when the sources, the classpath and the options didn't change since the last generation
+                File fingerprintFile = getDocFingerprintFile(reportOutputDir);
+                File indexFile = new File(reportOutputDir, "index.html");
+                CompileFingerprint lastFingerprint = incrementalDoc ? CompileFingerprint.load(fingerprintFile) : null;
+                CompileFingerprint fingerprint = incrementalDoc ? CompileFingerprint.compute(lastFingerprint, getDocOptions(reportOutputDir), getDocClasspath(), sources) : null;
+                if (lastFingerprint != null && fingerprint.isUpToDate(lastFingerprint, indexFile)) {
+                    getLog().info(String.format("scaladoc of %d source file(s) is up to date", sources.size()));
+                } else {
+                    fingerprintFile.delete();
+                    JavaMainCaller jcmd = getScalaCommand();
+                    jcmd.addOption("-d", reportOutputDir.getAbsolutePath());
+                    for (File x : sources) {
+                        jcmd.addArgs(FileUtils.pathOf(x, useCanonicalPath));
+                    }
+                    jcmd.run(displayCmd);
+                    if (fingerprint != null && indexFile.exists()) {
+                        fingerprint.setOutputMarker(indexFile);
+                        fingerprint.save(fingerprintFile);
+                    }
                 }
-                jcmd.run(displayCmd);
             }
             if (forceAggregate) {
                 aggregate(project);
@@ -371,9 +433,11 @@ public class ScalaDocMojo extends ScalaSourceMojoSupport implements MavenReport
 
     protected void tryAggregateUpper(MavenProject prj) throws Exception {
         if (prj != null && prj.hasParent() && canAggregate()) {
+            DocAggregation aggregation = DocAggregation.of(session);
+            aggregation.setDocumented(prj);
             MavenProject parent = prj.getParent();
-            List<MavenProject> modules = parent.getCollectedProjects();
-            if ((modules.size() > 1) && prj.equals(modules.get(modules.size() - 1))) {
+            String pluginKey = ((PluginDescriptor) getPluginContext().get("pluginDescriptor")).getPluginLookupKey();
+            if (aggregation.startAggregation(parent, session, aggregateDirectOnly, pluginKey)) {
                 aggregate(parent);
             }
         }
@@ -385,10 +449,7 @@ public class ScalaDocMojo extends ScalaSourceMojoSupport implements MavenReport
         getLog().info("start aggregation into " + dest);
         StringBuilder mpath = new StringBuilder();
         for (MavenProject module : modules) {
-            if ( "pom".equals( module.getPackaging().toLowerCase() ) ) {
-                continue;
-            }
-            if (aggregateDirectOnly && module.getParent() != parent) {
+            if (!DocAggregation.isAggregated(module, parent, aggregateDirectOnly)) {
                 continue;
             }
             File subScaladocPath = new File(module.getReporting().getOutputDirectory() +"/" + outputDirectory).getAbsoluteFile();
@@ -42,10 +42,13 @@ import scala_maven_executions.MainHelper;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 public abstract class ScalaMojoSupport extends AbstractMojo {
@@ -53,6 +56,11 @@ public abstract class ScalaMojoSupport extends AbstractMojo {
     public static final String SCALA_LIBRARY_ARTIFACTID= "scala-library";
     public static final String SCALA_COMPILER_ARTIFACTID= "scala-compiler";
 
+    /**
+     * Jars of the scala distribution, provided by the compiler to its plugins.
+     */
+    private static final Set<String> SCALA_JARS = new HashSet<String>(Arrays.asList(SCALA_LIBRARY_ARTIFACTID, SCALA_COMPILER_ARTIFACTID, "scala-reflect"));
+
     /**
      * Constant {@link String} for "pom". Used to specify the Maven POM artifact
      * type.
@@ -289,6 +297,24 @@ public abstract class ScalaMojoSupport extends AbstractMojo {
      */
     protected boolean fork = true;
 
+    /**
+     * When scalac is forked, share the classes loaded by the jvm through a class data sharing archive
+     * (created by the first run and stored in the local repository), to reduce the startup of the next runs.
+     * Requires java 13+ (ignored with older jvms).
+     *
+     * @parameter property="maven.scala.useCdsArchive" default-value="false"
+     */
+    protected boolean useCdsArchive = false;
+
+    /**
+     * When scalac is not forked, keep its class loader (and the loaded, JIT compiled, classes) after the end of the build
+     * for the next builds run by the same maven process (maven daemon, IDE,...).
+     * Else the class loader is shared by the modules of the build and closed by the next build.
+     *
+     * @parameter property="maven.scala.keepClassLoader" default-value="false"
+     */
+    protected boolean keepClassLoader = false;
+
     /**
      * Force the use of an external ArgFile to run any forked process.
      *
@@ -381,10 +407,15 @@ public abstract class ScalaMojoSupport extends AbstractMojo {
     protected ToolchainManager toolchainManager;
 
     /** @parameter default-value="${plugin.artifacts}" */
-    private List<Artifact> pluginArtifacts;
+    protected List<Artifact> pluginArtifacts;
 
     private VersionNumber _scalaVersionN;
 
+    /** version by "groupId:artifactId" of {@link #getDependencies()} and of the model (computed on first lookup) */
+    private Map<String, String> _dependencyVersions;
+    private Map<String, String> _modelVersions;
+    private Map<String, Artifact> _pluginArtifactsIndex;
+
     /**
      * Constructs an {@link Artifact} for Scala Compiler.
      *
@@ -533,6 +564,10 @@ public abstract class ScalaMojoSupport extends AbstractMojo {
      * @todo might want to merge with existing "addToClasspath" methods.
      */
     public void addToClasspath(String groupId, String artifactId, String version, String classifier, Set<String> classpath, boolean addDependencies) throws Exception {
+      addToClasspath(createArtifact(groupId, artifactId, version, classifier), classpath, addDependencies);
+    }
+
+    private Artifact createArtifact(String groupId, String artifactId, String version, String classifier) {
       Dependency d = new Dependency();
       d.setGroupId(groupId);
       d.setArtifactId(artifactId);
@@ -540,19 +575,56 @@ public abstract class ScalaMojoSupport extends AbstractMojo {
       d.setType(ScalaMojoSupport.JAR);
       d.setClassifier(classifier);
       d.setScope(Artifact.SCOPE_RUNTIME);
-      addToClasspath(factory.createDependencyArtifact(d), classpath, addDependencies);
+      return factory.createDependencyArtifact(d);
     }
 
     protected void addToClasspath(Artifact artifact, Set<String> classpath, boolean addDependencies) throws Exception {
-        resolver.resolve(artifact, remoteRepos, localRepo);
-        classpath.add(FileUtils.pathOf(artifact.getFile(), useCanonicalPath));
+        if (!classpath.add(FileUtils.pathOf(resolveFile(artifact), useCanonicalPath))) {
+            // already added (with its dependencies, shared by several artifacts)
+            return;
+        }
         if (addDependencies) {
-            for (Artifact dep : resolveArtifactDependencies(artifact)) {
+            for (Artifact dep : resolveArtifactDependenciesCached(artifact)) {
                 addToClasspath(dep, classpath, addDependencies);
             }
         }
     }
 
+    /**
+     * Resolves the artifact once per build. The artifact is not modified when its file is cached (it can be an artifact
+     * of the project, owned by maven).
+     *
+     * @return the file of the artifact
+     */
+    private File resolveFile(Artifact artifact) throws Exception {
+        if (artifact.isResolved() && artifact.getFile() != null) {
+            // already resolved by maven (dependencies of the project, modules of the reactor,...)
+            return artifact.getFile();
+        }
+        ResolutionCache cache = ResolutionCache.of(session);
+        String key = ResolutionCache.keyOf(artifact);
+        File back = cache.getFile(key);
+        if (back == null) {
+            resolver.resolve(artifact, remoteRepos, localRepo);
+            back = artifact.getFile();
+            cache.putFile(key, back);
+        }
+        return back;
+    }
+
+    /**
+     * Same as {@link #resolveArtifactDependencies(Artifact)}, once per build.
+     */
+    private Set<Artifact> resolveArtifactDependenciesCached(Artifact artifact) throws Exception {
+        ResolutionCache cache = ResolutionCache.of(session);
+        String key = ResolutionCache.keyOf(artifact);
+        Set<Artifact> back = cache.getDependencies(key);
+        if (back == null) {
+            back = cache.putDependencies(key, resolveArtifactDependencies(artifact));
+        }
+        return back;
+    }
+
     protected void addCompilerToClasspath(Set<String> classpath) throws Exception {
       classpath.add(FileUtils.pathOf(getCompilerJar(), useCanonicalPath));
       for (File dep : getCompilerDependencies()) {
@@ -636,29 +708,39 @@ public abstract class ScalaMojoSupport extends AbstractMojo {
         return findVersionFromDependencies(getScalaOrganization(), SCALA_LIBRARY_ARTIFACTID);
     }
 
-    //TODO refactor to do only one scan of dependencies to find version
+    /**
+     * @return the version of the artifact in the dependencies of the mojo, else in the dependencies or the dependency
+     * management of the model (the dependencies are indexed on the first call)
+     */
     protected String findVersionFromDependencies(String groupId, String artifactId) throws Exception {
-        String version = null;
-        for (Dependency dep : getDependencies()) {
-            if (groupId.equals(dep.getGroupId()) && artifactId.equals(dep.getArtifactId())) {
-                version = dep.getVersion();
-            }
-        }
-        if (StringUtils.isEmpty(version)) {
+        if (_dependencyVersions == null) {
+            _dependencyVersions = versionsOf(getDependencies());
             List<Dependency> deps = new ArrayList<Dependency>();
             deps.addAll(project.getModel().getDependencies());
             if (project.getModel().getDependencyManagement() != null) {
                 deps.addAll(project.getModel().getDependencyManagement().getDependencies());
             }
-            for (Dependency dep : deps) {
-                if (groupId.equals(dep.getGroupId()) && artifactId.equals(dep.getArtifactId())) {
-                    version = dep.getVersion();
-                }
-            }
+            _modelVersions = versionsOf(deps);
+        }
+        String key = groupId + ':' + artifactId;
+        String version = _dependencyVersions.get(key);
+        if (StringUtils.isEmpty(version)) {
+            version = _modelVersions.get(key);
         }
         return version;
     }
 
+    /**
+     * @return version by "groupId:artifactId" (the last declaration wins)
+     */
+    private static Map<String, String> versionsOf(List<Dependency> deps) {
+        Map<String, String> back = new HashMap<String, String>(deps.size() * 2);
+        for (Dependency dep : deps) {
+            back.put(dep.getGroupId() + ':' + dep.getArtifactId(), dep.getVersion());
+        }
+        return back;
+    }
+
     protected void checkScalaVersion() throws Exception {
         String sv = findScalaVersion().toString();
         if (StringUtils.isNotEmpty(scalaHome)) {
@@ -809,12 +891,17 @@ public abstract class ScalaMojoSupport extends AbstractMojo {
             // * works only since 2.8.0
             // * is buggy (don't manage space in path on windows)
             getLog().debug("use java command with args in file forced : " + forceUseArgFile);
-            cmd = new JavaMainCallerByFork(this, mainClass, cp, null, null, forceUseArgFile, toolchainManager.getToolchainFromBuildContext("jdk", session));
+            JavaMainCallerByFork forkCmd = new JavaMainCallerByFork(this, mainClass, cp, null, null, forceUseArgFile, toolchainManager.getToolchainFromBuildContext("jdk", session));
             if (bootcp) {
-                cmd.addJvmArgs("-Xbootclasspath/a:" + toolcp);
+                forkCmd.addJvmArgs("-Xbootclasspath/a:" + toolcp);
             }
+            if (useCdsArchive) {
+                forkCmd.useCdsArchive(new File(localRepo.getBasedir(), ".cache/scala-maven-plugin/cds"));
+            }
+            cmd = forkCmd;
         } else  {
-            cmd = new JavaMainCallerInProcess(this, mainClass, toolcp, null, null);
+            // the request is shared by the clones of the session made for each module with "mvn -T"
+            cmd = new JavaMainCallerInProcess(this, mainClass, toolcp, null, null, (session != null) ? session.getRequest() : null, keepClassLoader);
         }
         return cmd;
     }
@@ -903,27 +990,41 @@ public abstract class ScalaMojoSupport extends AbstractMojo {
     }
 
     protected File getArtifactJar(String groupId, String artifactId, String version) throws Exception {
-        Artifact artifact = factory.createArtifact(groupId, artifactId, version, Artifact.SCOPE_RUNTIME, ScalaMojoSupport.JAR);
-        resolver.resolve(artifact, remoteRepos, localRepo);
-        return artifact.getFile();
+        return resolveFile(factory.createArtifact(groupId, artifactId, version, Artifact.SCOPE_RUNTIME, ScalaMojoSupport.JAR));
     }
 
     protected File getArtifactJar(String groupId, String artifactId, String version, String classifier) throws Exception {
-        Artifact artifact = factory.createArtifactWithClassifier(groupId, artifactId, version, ScalaMojoSupport.JAR, classifier);
-        resolver.resolve(artifact, remoteRepos, localRepo);
-        return artifact.getFile();
+        return resolveFile(factory.createArtifactWithClassifier(groupId, artifactId, version, ScalaMojoSupport.JAR, classifier));
     }
 
+    /**
+     * The result is computed once per build.
+     */
     protected Set<Artifact> getAllDependencies(String groupId, String artifactId, String version) throws Exception {
-        Set<Artifact> result = new HashSet<Artifact>();
+        ResolutionCache cache = ResolutionCache.of(session);
+        String key = ResolutionCache.keyOf(groupId, artifactId, version, null, "all-" + ScalaMojoSupport.POM);
+        Set<Artifact> back = cache.getDependencies(key);
+        if (back == null) {
+            Set<Artifact> result = new HashSet<Artifact>();
+            addAllDependencies(groupId, artifactId, version, result, new HashSet<String>());
+            back = cache.putDependencies(key, result);
+        }
+        return new HashSet<Artifact>(back);
+    }
+
+    /**
+     * @param visited the artifacts already walked (shared dependencies are only resolved once)
+     */
+    private void addAllDependencies(String groupId, String artifactId, String version, Set<Artifact> result, Set<String> visited) throws Exception {
+        if (!visited.add(groupId + ':' + artifactId + ':' + version)) {
+            return;
+        }
         Artifact pom = factory.createArtifact(groupId, artifactId, version, "", ScalaMojoSupport.POM);
-        Set<Artifact> d = resolveArtifactDependencies(pom);
+        Set<Artifact> d = resolveArtifactDependenciesCached(pom);
         result.addAll(d);
         for (Artifact dependency : d) {
-            Set<Artifact> transitive = getAllDependencies(dependency.getGroupId(), dependency.getArtifactId(), dependency.getVersion());
-            result.addAll(transitive);
+            addAllDependencies(dependency.getGroupId(), dependency.getArtifactId(), dependency.getVersion(), result, visited);
         }
-        return result;
     }
 
     /**
@@ -955,38 +1056,52 @@ public abstract class ScalaMojoSupport extends AbstractMojo {
     }
 
     /**
-     * Retrieves a list of paths to scala compiler plugins.
+     * Retrieves a list of paths to scala compiler plugins (and their dependencies, except the scala jars provided
+     * by the compiler). The list is computed once per build for a scala version and a list of plugins.
      *
      * @return The list of plugins
      * @throws Exception
      */
     private Set<String> getCompilerPlugins() throws Exception {
-        Set<String> plugins = new HashSet<String>();
-        if (compilerPlugins != null) {
-            Set<String> ignoreClasspath = new LinkedHashSet<String>();
-            addCompilerToClasspath(ignoreClasspath);
-            addLibraryToClasspath(ignoreClasspath);
-            for (BasicArtifact artifact : compilerPlugins) {
-                getLog().info("compiler plugin: " + artifact.toString());
-                // TODO - Ensure proper scala version for plugins
-                Set<String> pluginClassPath = new HashSet<String>();
-                //TODO - Pull in transitive dependencies.
-                addToClasspath(artifact.groupId, artifact.artifactId, artifact.version, artifact.classifier, pluginClassPath, false);
-                pluginClassPath.removeAll(ignoreClasspath);
-                plugins.addAll(pluginClassPath);
+        if (compilerPlugins == null) {
+            return Collections.emptySet();
+        }
+        StringBuilder key = new StringBuilder("plugins:").append(getScalaOrganization()).append(':').append(findScalaVersion()).append(':').append(scalaHome).append(':').append(useCanonicalPath);
+        for (BasicArtifact artifact : compilerPlugins) {
+            key.append(':').append(artifact);
+        }
+        ResolutionCache cache = ResolutionCache.of(session);
+        Set<String> plugins = cache.getPaths(key.toString());
+        if (plugins != null) {
+            return plugins;
+        }
+        long start = System.currentTimeMillis();
+        plugins = new LinkedHashSet<String>();
+        Set<String> ignoreClasspath = new LinkedHashSet<String>();
+        addCompilerToClasspath(ignoreClasspath);
+        addLibraryToClasspath(ignoreClasspath);
+        for (BasicArtifact artifact : compilerPlugins) {
+            getLog().info("compiler plugin: " + artifact.toString());
+            // TODO - Ensure proper scala version for plugins
+            Artifact pluginArtifact = createArtifact(artifact.groupId, artifact.artifactId, artifact.version, artifact.classifier);
+            Set<String> pluginClassPath = new LinkedHashSet<String>();
+            pluginClassPath.add(FileUtils.pathOf(resolveFile(pluginArtifact), useCanonicalPath));
+            for (Artifact dep : resolveArtifactDependenciesCached(pluginArtifact)) {
+                // the scala jars (of the version of the plugin) are provided by the compiler
+                if (!(getScalaOrganization().equals(dep.getGroupId()) && SCALA_JARS.contains(dep.getArtifactId()))) {
+                    pluginClassPath.add(FileUtils.pathOf(resolveFile(dep), useCanonicalPath));
+                }
             }
+            pluginClassPath.removeAll(ignoreClasspath);
+            plugins.addAll(pluginClassPath);
         }
-        return plugins;
+        getLog().info(String.format("resolved %d compiler plugin(s) (%d jars) in %d ms", compilerPlugins.length, plugins.size(), System.currentTimeMillis() - start));
+        return cache.putPaths(key.toString(), plugins);
     }
 
     protected String findVersionFromPluginArtifacts(String groupId, String artifactId) throws Exception {
-        String version = null;
-        for (Artifact art : pluginArtifacts) {
-            if (groupId.equals(art.getGroupId()) && artifactId.equals(art.getArtifactId())) {
-                version = art.getVersion();
-            }
-        }
-        return version;
+        Artifact artifact = pluginArtifactsIndex().get(groupId + ':' + artifactId);
+        return (artifact == null) ? null : artifact.getVersion();
     }
 
     protected File getPluginArtifactJar(String groupId, String artifactId, String version) throws Exception {
@@ -994,14 +1109,7 @@ public abstract class ScalaMojoSupport extends AbstractMojo {
     }
 
     protected File getPluginArtifactJar(String groupId, String artifactId, String version, String classifier) throws Exception {
-        Artifact artifact = null;
-        for (Artifact art : pluginArtifacts) {
-            if (groupId.equals(art.getGroupId()) && artifactId.equals(art.getArtifactId()) && version.equals(art.getVersion())){
-            	if ((classifier == null && art.getClassifier() == null) || (classifier != null && classifier.equals(art.getClassifier()))) {
-            		artifact = art;
-            	}
-            }
-        }
+        Artifact artifact = pluginArtifactsIndex().get(groupId + ':' + artifactId + ':' + version + ':' + classifier);
         if (artifact == null) {
 	    	String msg = String.format("can't find artifact %s::%s::%s-%s", groupId, artifactId, version, classifier);
 	    	getLog().error(msg);
@@ -1009,4 +1117,20 @@ public abstract class ScalaMojoSupport extends AbstractMojo {
         }
         return artifact.getFile();
     }
+
+    /**
+     * @return the artifacts of the plugin by "groupId:artifactId" and by "groupId:artifactId:version:classifier"
+     * (the last artifact wins)
+     */
+    private Map<String, Artifact> pluginArtifactsIndex() {
+        if (_pluginArtifactsIndex == null) {
+            Map<String, Artifact> index = new HashMap<String, Artifact>(pluginArtifacts.size() * 4);
+            for (Artifact art : pluginArtifacts) {
+                index.put(art.getGroupId() + ':' + art.getArtifactId(), art);
+                index.put(art.getGroupId() + ':' + art.getArtifactId() + ':' + art.getVersion() + ':' + art.getClassifier(), art);
+            }
+            _pluginArtifactsIndex = index;
+        }
+        return _pluginArtifactsIndex;
+    }
 }
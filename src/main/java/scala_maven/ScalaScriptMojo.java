@@ -12,9 +12,11 @@ import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.net.URLClassLoader;
 import java.nio.charset.Charset;
+import java.security.MessageDigest;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.TreeSet;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -130,17 +132,39 @@ public class ScalaScriptMojo extends ScalaMojoSupport {
      */
     protected String removeFromClasspath;
 
+    /**
+     * Keep the compiled script in the local repository, keyed by the content of the script, its classpath
+     * (paths, sizes and modification times) and the scala options. The next runs of an unchanged script load
+     * the cached classes instead of compiling the script.
+     *
+     * @parameter property="maven.scala.useScriptCache" default-value="false"
+     */
+    protected boolean useScriptCache = false;
+
+    /**
+     * Version of the plugin (a script cached by an other version of the plugin is compiled again).
+     *
+     * @parameter default-value="${plugin.version}"
+     * @readonly
+     */
+    private String pluginVersion;
+
+    /**
+     * Cached scripts not used since this time (in ms) are removed from the cache.
+     */
+    private static final long SCRIPT_CACHE_MAX_AGE = 30L * 24 * 60 * 60 * 1000;
+
     private static AtomicInteger _lastScriptIndex = new AtomicInteger(0);
 
-    private static String scriptBaseNameOf(File scriptFile, int idx) {
+    private static String scriptBaseNameOf(File scriptFile, String suffix) {
       if (scriptFile == null) {
-          return "embeddedScript_" + idx;
+          return "embeddedScript_" + suffix;
       }
       int dot = scriptFile.getName().lastIndexOf('.');
       if (dot == -1) {
-          return scriptFile.getName() + "_" + idx;
+          return scriptFile.getName() + "_" + suffix;
       }
-      return scriptFile.getName().substring(0, dot) + "_" + idx;
+      return scriptFile.getName().substring(0, dot) + "_" + suffix;
     }
 
     @Override
@@ -166,22 +190,54 @@ public class ScalaScriptMojo extends ScalaMojoSupport {
         // prepare
         File scriptDir = new File(outputDir, ".scalaScriptGen");
         scriptDir.mkdirs();
-        String baseName = scriptBaseNameOf(scriptFile, _lastScriptIndex.incrementAndGet());
-        File destFile = new File(scriptDir, baseName  + ".scala");
 
         Set<String> classpath = new HashSet<String>();
         configureClasspath(classpath);
 
 
         boolean mavenProjectDependency = includeScopes.contains("plugin");
+        String key = useScriptCache ? scriptKeyOf(scriptDir, classpath, mavenProjectDependency) : null;
+        // the name of a cached script depends only on its key, so it matches the name of the cached class
+        String baseName = scriptBaseNameOf(scriptFile, (key != null) ? key.substring(0, 12) : String.valueOf(_lastScriptIndex.incrementAndGet()));
+        File destFile = new File(scriptDir, baseName  + ".scala");
         wrapScript(destFile, mavenProjectDependency);
 
+        File tmpDir = null;
         try {
-            URLClassLoader loader = createScriptClassloader(scriptDir, classpath);
-        	getLog().debug(("classpath : " + Arrays.asList(loader.getURLs())));
-            compileScript(scriptDir, destFile, loader);
+            File classesDir = scriptDir;
+            File cacheDir = new File(localRepo.getBasedir(), ".cache/scala-maven-plugin/scripts");
+            if (key != null) {
+                classesDir = new File(cacheDir, key);
+            }
+            if (key == null || !classesDir.isDirectory()) {
+                URLClassLoader loader = createScriptClassloader(scriptDir, classpath);
+                getLog().debug(("classpath : " + Arrays.asList(loader.getURLs())));
+                if (key == null) {
+                    compileScript(scriptDir, destFile, scriptDir, loader);
+                } else {
+                    // compile into a temporary directory, renamed when complete (a concurrent build can cache the same script)
+                    tmpDir = new File(classesDir.getPath() + "." + Long.toHexString(System.nanoTime()) + ".tmp");
+                    tmpDir.mkdirs();
+                    compileScript(scriptDir, destFile, tmpDir, loader);
+                    if (tmpDir.renameTo(classesDir)) {
+                        removeUnusedScripts(cacheDir);
+                    } else if (!classesDir.isDirectory()) {
+                        // not cached by a concurrent build either, so the script is run from the temporary directory
+                        getLog().warn("failed to cache the compiled script into " + classesDir);
+                        classesDir = tmpDir;
+                    }
+                }
+            } else {
+                getLog().debug("use the compiled script cached in " + classesDir);
+                // the time of the last use, for the eviction
+                classesDir.setLastModified(System.currentTimeMillis());
+            }
+            URLClassLoader loader = createScriptClassloader(classesDir, classpath);
             runScript(mavenProjectDependency, loader, baseName);
         } finally {
+            if (tmpDir != null && tmpDir.exists()) {
+                delete(tmpDir);
+            }
             if (!keepGeneratedScript) {
                 delete(scriptDir);
             }
@@ -258,10 +314,86 @@ public class ScalaScriptMojo extends ScalaMojoSupport {
         return rScript;
     }
 
-    private void compileScript(File scriptDir, File destFile, URLClassLoader loader) throws Exception {
+    /**
+     * Removes the cached scripts (and the temporary directories of interrupted compilations) not used since
+     * {@link #SCRIPT_CACHE_MAX_AGE}.
+     */
+    private void removeUnusedScripts(File cacheDir) {
+        File[] entries = cacheDir.listFiles();
+        if (entries == null) {
+            return;
+        }
+        long minLastUse = System.currentTimeMillis() - SCRIPT_CACHE_MAX_AGE;
+        for (File entry : entries) {
+            if (entry.lastModified() < minLastUse) {
+                getLog().debug("remove the unused cached script " + entry);
+                delete(entry);
+            }
+        }
+    }
+
+    /**
+     * @return the key of the compiled script: digest of the script, of the classpath used to compile it
+     * (except the directory of the generated script), of the scala version and options and of the version of the plugin
+     */
+    private String scriptKeyOf(File scriptDir, Set<String> classpath, boolean mavenProjectDependency) throws Exception {
+        MessageDigest md = MessageDigest.getInstance("MD5");
+        if (scriptFile != null) {
+            md.update(scriptFile.getName().getBytes("UTF-8"));
+            md.update(FileUtils.fileRead(scriptFile, scriptEncoding).getBytes("UTF-8"));
+        } else {
+            md.update(script.getBytes("UTF-8"));
+        }
+        md.update((byte) 0);
+        md.update(String.valueOf(mavenProjectDependency).getBytes("UTF-8"));
+        md.update(findScalaVersion().toString().getBytes("UTF-8"));
+        md.update((byte) 0);
+        md.update(String.valueOf(pluginVersion).getBytes("UTF-8"));
+        if (args != null) {
+            for (String arg : args) {
+                md.update((byte) 0);
+                md.update(arg.getBytes("UTF-8"));
+            }
+        }
+        List<String> entries = new ArrayList<String>();
+        MainHelper.appendUrltoClasspathCollection(createScriptClassloader(scriptDir, classpath), entries);
+        for (String entry : entries) {
+            File f = new File(entry);
+            if (!f.getAbsoluteFile().equals(scriptDir.getAbsoluteFile())) {
+                md.update((byte) 0);
+                md.update(entry.getBytes("UTF-8"));
+                updateWithState(md, f);
+            }
+        }
+        StringBuilder back = new StringBuilder();
+        for (byte b : md.digest()) {
+            back.append(String.format("%02x", b));
+        }
+        return back.toString();
+    }
+
+    /**
+     * Updates the digest with the size and the modification time of the file (or of the files of the directory).
+     */
+    private static void updateWithState(MessageDigest md, File f) throws Exception {
+        if (f.isDirectory()) {
+            File[] children = f.listFiles();
+            if (children != null) {
+                Arrays.sort(children);
+                for (File child : children) {
+                    md.update(child.getName().getBytes("UTF-8"));
+                    updateWithState(md, child);
+                }
+            }
+        } else {
+            md.update((f.length() + "/" + f.lastModified()).getBytes("UTF-8"));
+        }
+    }
+
+    private void compileScript(File scriptDir, File destFile, File classesDir, URLClassLoader loader) throws Exception {
         JavaMainCaller jcmd = getScalaCommand();
         jcmd.addArgs("-classpath", MainHelper.toClasspathString(loader));
-        jcmd.addArgs("-d", scriptDir.getAbsolutePath());
+        jcmd.addArgs("-d", classesDir.getAbsolutePath());
         jcmd.addArgs("-sourcepath", scriptDir.getAbsolutePath());
         jcmd.addArgs(destFile.getAbsolutePath());
 
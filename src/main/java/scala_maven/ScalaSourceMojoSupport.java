@@ -1,7 +1,5 @@
 package scala_maven;
 
-import scala_maven_executions.MainHelper;
-
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -90,22 +88,25 @@ abstract public class ScalaSourceMojoSupport extends ScalaMojoSupport {
      * Finds all source files in a set of directories with a given extension.
      */
     protected List<File> findSourceWithFilters(List<File> sourceRootDirs) throws Exception {
+        long t0 = System.currentTimeMillis();
         List<File> sourceFiles = new ArrayList<File>();
 
         initFilters();
 
-        // TODO - Since we're making files anyway, perhaps we should just test
-        // for existence here...
+        // the listing of the source directories is cached (in memory for the other goals of the build, under target/ for the next build)
+        File indexDir = new File(project.getBuild().getDirectory(), "scala-sources-index");
+        String[] includesArray = includes.toArray(new String[includes.size()]);
+        String[] excludesArray = excludes.toArray(new String[excludes.size()]);
         for (File dir : sourceRootDirs) {
-            String[] tmpFiles = MainHelper.findFiles(dir, includes.toArray(new String[includes.size()]), excludes.toArray(new String[excludes.size()]));
-            for (String tmpLocalFile : tmpFiles) {
-                File tmpAbsFile = FileUtils.fileOf(new File(dir, tmpLocalFile), useCanonicalPath);
-                sourceFiles.add(tmpAbsFile);
-            }
+            String[] tmpFiles = SourceIndex.findFiles(dir, includesArray, excludesArray, indexDir, session);
+            sourceFiles.addAll(FileUtils.filesOf(dir, tmpFiles, useCanonicalPath));
         }
         // scalac is sensitive to scala file order, file system can't guarantee file order => unreproducible build error across platforms
         // sort files by path (OS dependent) to guarantee reproducible command line.
         Collections.sort(sourceFiles);
+        if (getLog().isDebugEnabled()) {
+            getLog().debug(String.format("found %d source files in %d source directories in %d ms", sourceFiles.size(), sourceRootDirs.size(), System.currentTimeMillis() - t0));
+        }
         return sourceFiles;
     }
 
@@ -0,0 +1,233 @@
+package scala_maven;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.apache.maven.execution.MavenExecutionRequest;
+import org.apache.maven.execution.MavenSession;
+import org.codehaus.plexus.util.AbstractScanner;
+import org.codehaus.plexus.util.IOUtil;
+import org.codehaus.plexus.util.SelectorUtils;
+
+/**
+ * Index of the source files under a root directory (matching includes and excludes patterns like a DirectoryScanner).
+ *
+ * Only the directories modified (created, deleted or renamed entries) since the previous scan are listed again,
+ * an unchanged tree costs one stat per directory.
+ * Indexes are shared by every goal of the session (compile, testCompile, doc,...) and persisted (under target/)
+ * to be reused by the next build.
+ */
+class SourceIndex implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Directories modified less than this delay before a scan are listed again by the next scan
+     * (the resolution of the last modification time is 1 or 2 seconds on some file systems).
+     */
+    private static final long MTIME_RESOLUTION = 2000;
+
+    /**
+     * Indexes by build, keyed by the request of the session: shared by the clones of the session made for each module
+     * with "mvn -T" (weak keys: the request of an embedded maven is released after the build).
+     */
+    private static final Map<MavenExecutionRequest, Map<String, SourceIndex>> _builds = new WeakHashMap<MavenExecutionRequest, Map<String, SourceIndex>>();
+
+    /**
+     * @param session the session of the build sharing the index, or null (the index is not kept in memory)
+     * @param persistDir directory where the index is saved between builds, or null
+     * @return the path (relative to root) of the included files, like DirectoryScanner.getIncludedFiles() (default excludes are applied)
+     */
+    static String[] findFiles(File root, String[] includes, String[] excludes, File persistDir, MavenSession session) {
+        String key = root.getPath() + "|" + Arrays.toString(includes) + "|" + Arrays.toString(excludes);
+        SourceIndex index;
+        synchronized (_builds) {
+            Map<String, SourceIndex> indexes = (session == null) ? new HashMap<String, SourceIndex>() : _builds.get(session.getRequest());
+            if (indexes == null) {
+                indexes = new HashMap<String, SourceIndex>();
+                _builds.put(session.getRequest(), indexes);
+            }
+            index = indexes.get(key);
+            if (index == null) {
+                File file = (persistDir == null) ? null : new File(persistDir, "sources-" + Integer.toHexString(key.hashCode()) + ".idx");
+                index = load(file, key);
+                if (index == null) {
+                    index = new SourceIndex(key, root, includes, excludes);
+                }
+                index._file = file;
+                indexes.put(key, index);
+            }
+        }
+        return index.update();
+    }
+
+    private static class Dir implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        final long lastModified;
+        final String[] files;
+        final String[] subdirs;
+
+        Dir(long lastModified, String[] files, String[] subdirs) {
+            this.lastModified = lastModified;
+            this.files = files;
+            this.subdirs = subdirs;
+        }
+    }
+
+    private final String _key;
+    private final File _root;
+    private final String[] _includes;
+    private final String[] _excludes;
+    private long _scannedAt = -1;
+    private Map<String, Dir> _dirs = new HashMap<String, Dir>();
+    private transient File _file;
+
+    private SourceIndex(String key, File root, String[] includes, String[] excludes) {
+        _key = key;
+        _root = root;
+        _includes = normalize(includes);
+        List<String> allExcludes = new ArrayList<String>(Arrays.asList(excludes));
+        allExcludes.addAll(Arrays.asList(AbstractScanner.DEFAULTEXCLUDES));
+        _excludes = normalize(allExcludes.toArray(new String[allExcludes.size()]));
+    }
+
+    synchronized String[] update() {
+        long now = System.currentTimeMillis();
+        Map<String, Dir> dirs = new HashMap<String, Dir>(_dirs.size());
+        List<String> files = new ArrayList<String>();
+        boolean changed = update("", _root, dirs, files);
+        changed = changed || (dirs.size() != _dirs.size());
+        _dirs = dirs;
+        _scannedAt = now;
+        if (changed) {
+            save();
+        }
+        return files.toArray(new String[files.size()]);
+    }
+
+    private boolean update(String relDir, File dir, Map<String, Dir> dirs, List<String> files) {
+        long lastModified = dir.lastModified();
+        Dir current = _dirs.get(relDir);
+        boolean changed = false;
+        if (current == null || current.lastModified != lastModified || lastModified > _scannedAt - MTIME_RESOLUTION) {
+            Dir listed = list(relDir, dir, lastModified);
+            changed = (current == null) || !Arrays.equals(current.files, listed.files) || !Arrays.equals(current.subdirs, listed.subdirs);
+            current = listed;
+        }
+        dirs.put(relDir, current);
+        files.addAll(Arrays.asList(current.files));
+        for (String subdir : current.subdirs) {
+            changed = update(subdir, new File(_root, subdir), dirs, files) || changed;
+        }
+        return changed;
+    }
+
+    private Dir list(String relDir, File dir, long lastModified) {
+        List<String> files = new ArrayList<String>();
+        List<String> subdirs = new ArrayList<String>();
+        File[] children = dir.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                String rel = (relDir.length() == 0) ? child.getName() : relDir + File.separator + child.getName();
+                if (child.isDirectory()) {
+                    if (!isPruned(rel)) {
+                        subdirs.add(rel);
+                    }
+                } else if (matchAny(_includes, rel) && !matchAny(_excludes, rel)) {
+                    files.add(rel);
+                }
+            }
+        }
+        return new Dir(lastModified, files.toArray(new String[files.size()]), subdirs.toArray(new String[subdirs.size()]));
+    }
+
+    /**
+     * A directory is not scanned if an exclude pattern ending with "**" matches it (so it matches every file in it).
+     */
+    private boolean isPruned(String relDir) {
+        for (String pattern : _excludes) {
+            if (pattern.endsWith("**") && SelectorUtils.matchPath(pattern, relDir)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean matchAny(String[] patterns, String path) {
+        for (String pattern : patterns) {
+            if (matches(pattern, path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean matches(String pattern, String path) {
+        // fast path for the usual "**/*.ext" patterns
+        if (pattern.startsWith("**" + File.separator + "*") && pattern.indexOf('*', 4) < 0 && pattern.indexOf('?') < 0 && pattern.indexOf(File.separatorChar, 3) < 0) {
+            return path.endsWith(pattern.substring(4));
+        }
+        return SelectorUtils.matchPath(pattern, path);
+    }
+
+    /**
+     * Normalizes patterns like DirectoryScanner (OS separator, "dir/" means "dir/**").
+     */
+    private static String[] normalize(String[] patterns) {
+        String[] back = new String[patterns.length];
+        for (int i = 0; i < patterns.length; i++) {
+            String pattern = patterns[i].trim().replace('/', File.separatorChar).replace('\\', File.separatorChar);
+            if (pattern.endsWith(File.separator)) {
+                pattern += "**";
+            }
+            back[i] = pattern;
+        }
+        return back;
+    }
+
+    private static SourceIndex load(File file, String key) {
+        if (file == null || !file.exists()) {
+            return null;
+        }
+        ObjectInputStream in = null;
+        try {
+            in = new ObjectInputStream(new FileInputStream(file));
+            SourceIndex back = (SourceIndex) in.readObject();
+            return key.equals(back._key) ? back : null;
+        } catch (Exception exc) {
+            // corrupted or incompatible index
+            return null;
+        } finally {
+            IOUtil.close(in);
+        }
+    }
+
+    private void save() {
+        if (_file == null) {
+            return;
+        }
+        ObjectOutputStream out = null;
+        try {
+            _file.getParentFile().mkdirs();
+            out = new ObjectOutputStream(new FileOutputStream(_file));
+            out.writeObject(this);
+        } catch (IOException exc) {
+            // the index will be rebuilt by the next build
+            _file.delete();
+        } finally {
+            IOUtil.close(out);
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package scala_maven;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import org.codehaus.plexus.util.IOUtil;
+
+/**
+ * State (size, last modification time and checksum of the content) of a set of source files.
+ *
+ * Used to detect modified sources without relying only on timestamps (timestamps are reset by a git checkout
+ * or a restore of a cached target directory, but the content is unchanged).
+ * The checksum of a file is only computed when its size or its modification time doesn't match the previous state.
+ */
+class SourceManifest {
+
+    private static final String SEPARATOR = "\t";
+
+    static class Entry {
+        final long size;
+        final long lastModified;
+        final long checksum;
+
+        Entry(long size, long lastModified, long checksum) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.checksum = checksum;
+        }
+    }
+
+    private final Map<String, Entry> _entries = new HashMap<String, Entry>();
+
+    /**
+     * Reads a manifest previously written by {@link #save(File)}.
+     *
+     * @return the manifest or null if the file doesn't exist or can't be read.
+     */
+    static SourceManifest load(File file) {
+        if (!file.exists()) {
+            return null;
+        }
+        BufferedReader in = null;
+        try {
+            in = new BufferedReader(new FileReader(file));
+            return read(in);
+        } catch (IOException exc) {
+            return null;
+        } finally {
+            IOUtil.close(in);
+        }
+    }
+
+    /**
+     * Reads the entries written by {@link #write(PrintWriter)} (until the end of the stream).
+     *
+     * @return the manifest or null if the content is invalid.
+     */
+    static SourceManifest read(BufferedReader in) throws IOException {
+        SourceManifest back = new SourceManifest();
+        String line = in.readLine();
+        while (line != null) {
+            String[] fields = line.split(SEPARATOR, 4);
+            if (fields.length != 4) {
+                return null;
+            }
+            try {
+                back._entries.put(fields[3], new Entry(Long.parseLong(fields[0]), Long.parseLong(fields[1]), Long.parseLong(fields[2], 16)));
+            } catch (NumberFormatException exc) {
+                return null;
+            }
+            line = in.readLine();
+        }
+        return back;
+    }
+
+    void save(File file) throws IOException {
+        PrintWriter out = new PrintWriter(new BufferedWriter(new FileWriter(file)));
+        try {
+            write(out);
+        } finally {
+            out.close();
+        }
+    }
+
+    void write(PrintWriter out) {
+        for (Map.Entry<String, Entry> e : _entries.entrySet()) {
+            Entry entry = e.getValue();
+            out.print(entry.size);
+            out.print(SEPARATOR);
+            out.print(entry.lastModified);
+            out.print(SEPARATOR);
+            out.print(Long.toHexString(entry.checksum));
+            out.print(SEPARATOR);
+            out.println(e.getKey());
+        }
+    }
+
+    /**
+     * Computes the current state of the files, the checksum of files with the same size and modification time
+     * than in this manifest are not recomputed.
+     */
+    SourceManifest scan(Collection<File> files) throws IOException {
+        SourceManifest back = new SourceManifest();
+        for (File f : files) {
+            String path = f.getPath();
+            long size = f.length();
+            long lastModified = f.lastModified();
+            Entry entry = _entries.get(path);
+            if (entry == null || entry.size != size || entry.lastModified != lastModified) {
+                entry = new Entry(size, lastModified, checksumOf(f));
+            }
+            back._entries.put(path, entry);
+        }
+        return back;
+    }
+
+    /**
+     * @return true if the content of the file (as registered in this manifest) is different from its content in previous
+     */
+    boolean isModifiedSince(File f, SourceManifest previous) {
+        String path = f.getPath();
+        Entry before = previous._entries.get(path);
+        Entry now = _entries.get(path);
+        return (before == null) || (now == null) || (before.size != now.size) || (before.checksum != now.checksum);
+    }
+
+    /**
+     * @return true if at least one file registered in previous is not registered in this manifest
+     */
+    boolean hasRemovedFilesSince(SourceManifest previous) {
+        return !_entries.keySet().containsAll(previous._entries.keySet());
+    }
+
+    /**
+     * @return true if both manifests register the same files with the same content
+     */
+    boolean hasSameContentAs(SourceManifest other) {
+        if (!_entries.keySet().equals(other._entries.keySet())) {
+            return false;
+        }
+        for (Map.Entry<String, Entry> e : _entries.entrySet()) {
+            Entry otherEntry = other._entries.get(e.getKey());
+            if (e.getValue().size != otherEntry.size || e.getValue().checksum != otherEntry.checksum) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    boolean contains(File f) {
+        return _entries.containsKey(f.getPath());
+    }
+
+    int size() {
+        return _entries.size();
+    }
+
+    static long checksumOf(File f) throws IOException {
+        CRC32 crc = new CRC32();
+        byte[] buffer = new byte[8192];
+        InputStream in = new FileInputStream(f);
+        try {
+            int n = in.read(buffer);
+            while (n > -1) {
+                crc.update(buffer, 0, n);
+                n = in.read(buffer);
+            }
+        } finally {
+            in.close();
+        }
+        return crc.getValue();
+    }
+}
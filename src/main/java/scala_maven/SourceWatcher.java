@@ -0,0 +1,62 @@
+package scala_maven;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Waits for changes of the sources (used by the continuous compilation).
+ *
+ * When the JVM provides a native file-system watch service (java.nio.file, jdk 7+) the source directories are watched,
+ * else (or if the directories can't be registered to the watch service) the directories are polled (every {@link #POLL_INTERVAL} ms).
+ */
+abstract class SourceWatcher {
+
+    static final long POLL_INTERVAL = 3000;
+
+    /**
+     * @param roots directories to watch (recursively)
+     * @param includes patterns of files to watch (relative to their root)
+     * @param excludes patterns of files to ignore (relative to their root)
+     */
+    static SourceWatcher create(List<File> roots, String[] includes, String[] excludes) throws Exception {
+        if (hasNativeWatchService()) {
+            try {
+                NioSourceWatcher back = new NioSourceWatcher(roots, includes, excludes);
+                if (back.isNative()) {
+                    return back;
+                }
+                back.close();
+            } catch (IOException exc) {
+                // too many directories to watch (inotify limit,...)
+            }
+        }
+        return new SourceWatcher() {
+            @Override
+            void waitForChanges() throws Exception {
+                Thread.sleep(POLL_INTERVAL);
+            }
+
+            @Override
+            void close() {
+            }
+        };
+    }
+
+    private static boolean hasNativeWatchService() {
+        try {
+            Class.forName("java.nio.file.WatchService");
+            return true;
+        } catch (ClassNotFoundException exc) {
+            return false;
+        }
+    }
+
+    /**
+     * Blocks until at least one source is (probably) created, modified or deleted.
+     * Bursts of changes (eg a checkout) are coalesced, so it returns when changes stop.
+     */
+    abstract void waitForChanges() throws Exception;
+
+    abstract void close();
+}
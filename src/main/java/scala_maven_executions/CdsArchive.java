@@ -0,0 +1,160 @@
+package scala_maven_executions;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.codehaus.plexus.util.IOUtil;
+
+/**
+ * Class data sharing archive of the classes loaded by a forked tool (scalac), to reduce the startup of the next forks.
+ *
+ * The archive is created at the exit of a first run (-XX:ArchiveClassesAtExit), then used by the next runs with the
+ * same jvm, jvm arguments and classpath (-XX:SharedArchiveFile).
+ * An archive is kept per jvm and jvm arguments: the archive created after an update of the jars of the classpath
+ * replaces the previous one.
+ * Dynamic archives are only supported since java 13, older jvms run without archive.
+ */
+class CdsArchive {
+
+    static final int MIN_JAVA_VERSION = 13;
+
+    private static final String BOOTCLASSPATH_ARG = "-Xbootclasspath/a:";
+
+    private static final Pattern JAVA_VERSION = Pattern.compile("^JAVA_VERSION=\"(1\\.)?(\\d+).*\"$");
+
+    private final File _archive;
+    private final File _tmp;
+    /**
+     * Prefix of the name of the archives of the jvm and jvm arguments (for any state of the jars).
+     */
+    private final String _prefix;
+
+    private CdsArchive(File archive, String prefix) {
+        _archive = archive;
+        _prefix = prefix;
+        _tmp = new File(archive.getPath() + "." + Long.toHexString(System.nanoTime()) + ".tmp");
+    }
+
+    /**
+     * @param dir directory of the archives
+     * @param javaExec the java executable
+     * @param jvmArgs the jvm arguments (including the classpath and the main class)
+     * @return the archive for the jvm and its arguments, or null if the jvm doesn't support dynamic archives
+     */
+    static CdsArchive of(File dir, String javaExec, List<String> jvmArgs) throws Exception {
+        if (javaVersionOf(javaExec) < MIN_JAVA_VERSION) {
+            return null;
+        }
+        MessageDigest md = MessageDigest.getInstance("MD5");
+        MessageDigest jars = MessageDigest.getInstance("MD5");
+        md.update(javaExec.getBytes("UTF-8"));
+        String previous = "";
+        for (String arg : jvmArgs) {
+            md.update((byte) 0);
+            md.update(arg.getBytes("UTF-8"));
+            // an updated jar (snapshot,...) invalidates the archive, so a new one is created
+            String classpath = arg.startsWith(BOOTCLASSPATH_ARG) ? arg.substring(BOOTCLASSPATH_ARG.length()) : ("-classpath".equals(previous) || "-cp".equals(previous)) ? arg : null;
+            if (classpath != null) {
+                for (String path : classpath.split(File.pathSeparator)) {
+                    jars.update(String.valueOf(new File(path).lastModified()).getBytes("UTF-8"));
+                }
+            }
+            previous = arg;
+        }
+        String prefix = toHex(md.digest()) + "-";
+        dir.mkdirs();
+        return new CdsArchive(new File(dir, prefix + toHex(jars.digest()).substring(0, 8) + ".jsa"), prefix);
+    }
+
+    private static String toHex(byte[] digest) {
+        StringBuilder back = new StringBuilder();
+        for (byte b : digest) {
+            back.append(String.format("%02x", b));
+        }
+        return back.toString();
+    }
+
+    /**
+     * @return the major version of the java executable (read from the release file of its home), or -1 if unknown
+     */
+    static int javaVersionOf(String javaExec) {
+        File home = new File(javaExec).getAbsoluteFile().getParentFile().getParentFile();
+        File release = new File(home, "release");
+        if (!release.isFile()) {
+            // java 8: the executable is in the jre directory of the jdk
+            release = new File(home.getParentFile(), "release");
+        }
+        return release.isFile() ? versionOf(release) : -1;
+    }
+
+    private static int versionOf(File release) {
+        BufferedReader in = null;
+        try {
+            in = new BufferedReader(new FileReader(release));
+            for (String line = in.readLine(); line != null; line = in.readLine()) {
+                Matcher m = JAVA_VERSION.matcher(line.trim());
+                if (m.matches()) {
+                    return Integer.parseInt(m.group(2));
+                }
+            }
+        } catch (IOException exc) {
+            // unknown version
+        } finally {
+            IOUtil.close(in);
+        }
+        return -1;
+    }
+
+    File getFile() {
+        return _archive;
+    }
+
+    /**
+     * @return the jvm arguments to use the archive, or to create it (when it doesn't exist)
+     */
+    List<String> jvmArgs() {
+        List<String> back = new ArrayList<String>(2);
+        // an invalid archive (jars updated,...) is ignored, without warning in the output of the tool
+        back.add("-Xlog:cds=off,cds+dynamic=off");
+        if (_archive.exists()) {
+            back.add("-XX:SharedArchiveFile=" + _archive.getAbsolutePath());
+        } else {
+            back.add("-XX:ArchiveClassesAtExit=" + _tmp.getAbsolutePath());
+        }
+        return back;
+    }
+
+    /**
+     * Publishes the archive created by the run (concurrent runs create their own archive, the first one is kept),
+     * and removes the archives of the previous states of the jars.
+     *
+     * @param success true if the run succeeded (else the created archive is dropped)
+     * @return true if a new archive was published
+     */
+    boolean commit(boolean success) {
+        if (!_tmp.exists()) {
+            return false;
+        }
+        boolean back = success && !_archive.exists() && _tmp.renameTo(_archive);
+        _tmp.delete();
+        if (back) {
+            File[] archives = _archive.getParentFile().listFiles();
+            if (archives != null) {
+                for (File archive : archives) {
+                    // a jvm using a removed archive keeps it open
+                    if (archive.getName().startsWith(_prefix) && archive.getName().endsWith(".jsa") && !archive.equals(_archive)) {
+                        archive.delete();
+                    }
+                }
+            }
+        }
+        return back;
+    }
+}
@@ -0,0 +1,360 @@
+package scala_maven_executions;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.security.SecureRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Long-lived JVM running the compiler (or any main class) on request of {@link JavaMainCallerByDaemon},
+ * so the compiler stays loaded and jitted between compilations (and maven invocations).
+ * This class should run without other dependencies than jre.
+ *
+ * On startup, the daemon listens on a random local port and writes the port and a random token
+ * in the port file of its directory (the token is required by every request).
+ * Compilations are run one at a time (the output of the compiler is the output of the JVM), but every request
+ * is read by its own thread, so a ping is answered while a compilation is running.
+ * The daemon stops itself when it receives no request during the idle timeout.
+ */
+public class CompileDaemon {
+
+    static final String PORT_FILE = "port";
+    static final String LOG_FILE = "daemon.log";
+
+    static final int PING = 1;
+    static final int COMPILE = 2;
+    static final int SHUTDOWN = 3;
+    static final int PONG = 42;
+    static final int END_OF_OUTPUT = -1;
+
+    /**
+     * Max time to receive a request once connected.
+     */
+    private static final int REQUEST_TIMEOUT = 10000;
+
+    /**
+     * @param args directory of the daemon, idle timeout (in minutes), name of the main class to run
+     */
+    public static void main(String[] args) {
+        try {
+            File dir = new File(args[0]);
+            SwitchableOutputStream output = new SwitchableOutputStream(new FileOutputStream(new File(dir, LOG_FILE)));
+            PrintStream out = new PrintStream(output, true);
+            System.setOut(out);
+            System.setErr(out);
+            CompileDaemon daemon = new CompileDaemon(dir, args[2], output);
+            daemon.serve(Long.parseLong(args[1]) * 60 * 1000);
+            System.exit(0);
+        } catch (Throwable t) {
+            t.printStackTrace();
+            System.exit(-10000);
+        }
+    }
+
+    private final File _dir;
+    private final String _mainClassName;
+    private final SwitchableOutputStream _output;
+    private final long _token = new SecureRandom().nextLong();
+    private Class<?> _mainClass;
+    private final Object _compileLock = new Object();
+    private final AtomicInteger _compiling = new AtomicInteger(0);
+    private volatile long _lastRequestAt = System.currentTimeMillis();
+    private volatile boolean _stopped = false;
+    private ServerSocket _server;
+
+    CompileDaemon(File dir, String mainClassName, SwitchableOutputStream output) {
+        _dir = dir;
+        _mainClassName = mainClassName;
+        _output = output;
+    }
+
+    /**
+     * Handles requests until the idle timeout or a shutdown request.
+     */
+    void serve(long idleTimeout) throws IOException {
+        ServerSocket server = new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1"));
+        synchronized (this) {
+            _server = server;
+        }
+        String portFileContent = server.getLocalPort() + " " + _token;
+        try {
+            server.setSoTimeout((int) Math.min(idleTimeout, Integer.MAX_VALUE));
+            writePortFile(portFileContent);
+            System.out.println("compile daemon for " + _mainClassName + " listening on " + portFileContent.split(" ")[0]);
+            while (!_stopped) {
+                final Socket socket;
+                try {
+                    socket = server.accept();
+                } catch (SocketTimeoutException exc) {
+                    if (_compiling.get() > 0 || System.currentTimeMillis() - _lastRequestAt < idleTimeout) {
+                        continue;
+                    }
+                    System.out.println("compile daemon idle for " + idleTimeout + " ms, stop");
+                    return;
+                } catch (SocketException exc) {
+                    if (_stopped) {
+                        // closed by a shutdown request
+                        return;
+                    }
+                    throw exc;
+                }
+                Thread handler = new Thread("compile daemon request") {
+                    @Override
+                    public void run() {
+                        try {
+                            if (!handle(socket)) {
+                                CompileDaemon.this.stop();
+                            }
+                        } catch (IOException exc) {
+                            exc.printStackTrace();
+                        } finally {
+                            try {
+                                socket.close();
+                            } catch (IOException exc) {
+                                // ignore
+                            }
+                        }
+                    }
+                };
+                handler.setDaemon(true);
+                handler.start();
+            }
+        } finally {
+            server.close();
+            // let the compilation in progress complete
+            synchronized (_compileLock) {
+                _stopped = true;
+            }
+            // an other daemon could have replaced this one
+            File portFile = new File(_dir, PORT_FILE);
+            if (portFileContent.equals(readPortFile(portFile))) {
+                portFile.delete();
+            }
+        }
+    }
+
+    private synchronized void stop() {
+        _stopped = true;
+        try {
+            _server.close();
+        } catch (IOException exc) {
+            // ignore
+        }
+    }
+
+    private void writePortFile(String content) throws IOException {
+        File tmp = new File(_dir, PORT_FILE + ".tmp");
+        FileOutputStream out = new FileOutputStream(tmp);
+        try {
+            out.write(content.getBytes("UTF-8"));
+        } finally {
+            out.close();
+        }
+        // only readable by the owner (the token allows to run code in the daemon)
+        tmp.setReadable(false, false);
+        tmp.setReadable(true, true);
+        File portFile = new File(_dir, PORT_FILE);
+        portFile.delete();
+        if (!tmp.renameTo(portFile)) {
+            throw new IOException("failed to create " + portFile);
+        }
+    }
+
+    /**
+     * @return false if the daemon should stop
+     */
+    private boolean handle(Socket socket) throws IOException {
+        socket.setSoTimeout(REQUEST_TIMEOUT);
+        DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        if (in.readLong() != _token) {
+            return true;
+        }
+        int command = in.readInt();
+        switch (command) {
+        case PING:
+            out.writeInt(PONG);
+            break;
+        case SHUTDOWN:
+            out.writeInt(PONG);
+            out.flush();
+            return false;
+        case COMPILE:
+            String[] args = new String[in.readInt()];
+            for (int i = 0; i < args.length; i++) {
+                args[i] = readString(in);
+            }
+            int exitValue = compileInTurn(args, new OutputStream() {
+                @Override
+                public void write(int b) throws IOException {
+                    write(new byte[]{(byte) b}, 0, 1);
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    if (len > 0) {
+                        out.writeInt(len);
+                        out.write(b, off, len);
+                    }
+                }
+            });
+            out.writeInt(END_OF_OUTPUT);
+            out.writeInt(exitValue);
+            break;
+        default:
+            return true;
+        }
+        out.flush();
+        return true;
+    }
+
+    /**
+     * Waits for the end of the compilation in progress, then compiles.
+     *
+     * @return the exit value (0 if compilation succeed)
+     */
+    private int compileInTurn(String[] args, OutputStream output) {
+        _compiling.incrementAndGet();
+        try {
+            synchronized (_compileLock) {
+                if (_stopped) {
+                    return 2;
+                }
+                return compile(args, output);
+            }
+        } finally {
+            _lastRequestAt = System.currentTimeMillis();
+            _compiling.decrementAndGet();
+        }
+    }
+
+    /**
+     * @param output receives the output of the compiler
+     * @return the exit value (0 if compilation succeed)
+     */
+    int compile(String[] args, OutputStream output) {
+        OutputStream previous = _output.switchTo(output);
+        try {
+            return run(args) ? 0 : 1;
+        } catch (InvocationTargetException exc) {
+            exc.getCause().printStackTrace();
+            return 2;
+        } catch (Exception exc) {
+            exc.printStackTrace();
+            return 2;
+        } finally {
+            System.out.flush();
+            System.err.flush();
+            _output.switchTo(previous);
+        }
+    }
+
+    private boolean run(String[] args) throws Exception {
+        if (_mainClass == null) {
+            _mainClass = Class.forName(_mainClassName);
+        }
+        return runTool(_mainClass, args);
+    }
+
+    /**
+     * Calls the process(String[]) method of the compiler (scala.tools.nsc.Main.main calls System.exit),
+     * or the main method of other classes.
+     *
+     * @return false if the tool reported errors
+     */
+    static boolean runTool(Class<?> mainClass, String[] args) throws Exception {
+        Method process;
+        try {
+            process = mainClass.getMethod("process", String[].class);
+        } catch (NoSuchMethodException exc) {
+            mainClass.getMethod("main", String[].class).invoke(null, (Object) args);
+            return true;
+        }
+        Object result = process.invoke(null, (Object) args);
+        if (result instanceof Boolean) {
+            return (Boolean) result;
+        }
+        // scala 2.9: process returns Unit, errors are registered by the reporter
+        Object reporter = mainClass.getMethod("reporter").invoke(null);
+        return !((Boolean) reporter.getClass().getMethod("hasErrors").invoke(reporter));
+    }
+
+    /**
+     * @return the content of the port file ("port token") or null if it doesn't exist
+     */
+    static String readPortFile(File portFile) {
+        try {
+            DataInputStream in = new DataInputStream(new FileInputStream(portFile));
+            try {
+                byte[] bytes = new byte[(int) portFile.length()];
+                in.readFully(bytes);
+                return new String(bytes, "UTF-8");
+            } finally {
+                in.close();
+            }
+        } catch (IOException exc) {
+            return null;
+        }
+    }
+
+    static void writeString(DataOutputStream out, String s) throws IOException {
+        // writeUTF is limited to 64KB (too short for some classpath)
+        byte[] bytes = s.getBytes("UTF-8");
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, "UTF-8");
+    }
+
+    /**
+     * Output of the JVM (System.out and System.err), sent to the requester of the current compilation.
+     * The stream is switched instead of System.out because the scala Console keeps the initial System.out.
+     */
+    static class SwitchableOutputStream extends OutputStream {
+        private OutputStream _target;
+
+        SwitchableOutputStream(OutputStream target) {
+            _target = target;
+        }
+
+        synchronized OutputStream switchTo(OutputStream target) {
+            OutputStream back = _target;
+            _target = target;
+            return back;
+        }
+
+        @Override
+        public synchronized void write(int b) throws IOException {
+            _target.write(b);
+        }
+
+        @Override
+        public synchronized void write(byte[] b, int off, int len) throws IOException {
+            _target.write(b, off, len);
+        }
+
+        @Override
+        public synchronized void flush() throws IOException {
+            _target.flush();
+        }
+    }
+}
@@ -26,6 +26,9 @@ public interface JavaMainCaller {
     /** request run to be redirected to maven/requester logger */
     public abstract void redirectToLog();
 
+    /** hides the warnings of the redirected output displayed more than maxSameWarnings times (0 to display every warning) */
+    public abstract void hideRepeatedWarnings(int maxSameWarnings);
+
     // TODO: avoid to have several Thread to pipe stream
     // TODO: add support to inject startup command and shutdown command (on :quit)
     public abstract void run(boolean displayCmd) throws Exception;
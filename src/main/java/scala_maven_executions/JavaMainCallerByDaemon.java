@@ -0,0 +1,317 @@
+package scala_maven_executions;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.maven.plugin.MojoFailureException;
+import org.codehaus.plexus.util.IOUtil;
+import org.codehaus.plexus.util.StringUtils;
+
+/**
+ * Runs the main class in a {@link CompileDaemon} (started on first use, then shared by the next calls with the same
+ * jvm and jvm arguments, including the calls of the next maven invocations).
+ *
+ * Before each call the daemon is pinged (a busy daemon answers too), a daemon that doesn't accept connections anymore
+ * (stopped after its idle timeout, crashed,...) is replaced by a new one. The port file of a daemon is only replaced
+ * by the new daemon, never deleted by a caller.
+ */
+public class JavaMainCallerByDaemon extends JavaMainCallerSupport {
+
+    /**
+     * Max time to wait for a new daemon to answer.
+     */
+    private static final long START_TIMEOUT = 60000;
+
+    private static final int PING_TIMEOUT = 5000;
+
+    private static final Object _startLock = new Object();
+
+    private final JavaMainCallerByFork _launcher;
+    private final File _daemonsDir;
+    private final int _idleTimeout;
+    private boolean _redirectToLog;
+
+    /**
+     * @param launcher the command of the forked main class (its jvm, jvm arguments and arguments are used)
+     * @param daemonsDir directory of the daemons of the user (created readable by the owner only)
+     * @param idleTimeout time (in minutes) without call after which the daemon stops
+     */
+    public JavaMainCallerByDaemon(JavaMainCallerByFork launcher, File daemonsDir, int idleTimeout) throws Exception {
+        super(launcher.requester, launcher.mainClassName, null, launcher.jvmArgs.toArray(new String[launcher.jvmArgs.size()]), launcher.args.toArray(new String[launcher.args.size()]));
+        _launcher = launcher;
+        _daemonsDir = daemonsDir;
+        _idleTimeout = idleTimeout;
+    }
+
+    @Override
+    public boolean run(boolean displayCmd, boolean throwFailure) throws Exception {
+        if (displayCmd) {
+            requester.getLog().info("cmd (compile daemon): " + mainClassName + " " + StringUtils.join(args.iterator(), " "));
+        }
+        OutputStream output = _redirectToLog ? new MojoLogOutputStream(requester, maxSameWarnings) : System.out;
+        File dir = daemonDir();
+        int exitValue;
+        Socket socket = null;
+        try {
+            try {
+                socket = connect(dir);
+                sendCompile(socket, dir);
+            } catch (IOException exc) {
+                // the request is not received, so it can be sent again (to a new daemon if the daemon is stopped)
+                requester.getLog().warn("compile daemon doesn't accept the request (see " + new File(dir, CompileDaemon.LOG_FILE) + "), retry: " + exc);
+                close(socket);
+                socket = connect(dir);
+                sendCompile(socket, dir);
+            }
+            try {
+                exitValue = readResponse(socket, output);
+            } catch (IOException exc) {
+                throw new MojoFailureException("compile daemon stopped during the compilation (see " + new File(dir, CompileDaemon.LOG_FILE) + "): " + exc);
+            }
+        } finally {
+            close(socket);
+            output.flush();
+            if (output != System.out) {
+                output.close();
+            }
+        }
+        if (exitValue != 0) {
+            if (throwFailure) {
+                throw new MojoFailureException("compile daemon returned non-zero value:" + exitValue);
+            }
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public SpawnMonitor spawn(boolean displayCmd) throws Exception {
+        // a spawned process is not shared, so it is not run by the daemon
+        setUpLauncher(mainClassName, jvmArgs, args);
+        _launcher.env.clear();
+        _launcher.env.addAll(env);
+        return _launcher.spawn(displayCmd);
+    }
+
+    @Override
+    public void redirectToLog() {
+        _redirectToLog = true;
+    }
+
+    /**
+     * Daemons are shared by the callers with the same user, jvm, jvm arguments (including the classpath) and main class.
+     */
+    private File daemonDir() throws Exception {
+        MessageDigest md = MessageDigest.getInstance("MD5");
+        md.update(_launcher.getJavaExec().getBytes("UTF-8"));
+        for (String arg : jvmArgs) {
+            md.update((byte) 0);
+            md.update(arg.getBytes("UTF-8"));
+        }
+        md.update((byte) 0);
+        md.update(mainClassName.getBytes("UTF-8"));
+        StringBuilder name = new StringBuilder();
+        for (byte b : md.digest()) {
+            name.append(String.format("%02x", b));
+        }
+        if (!_daemonsDir.isDirectory()) {
+            _daemonsDir.mkdirs();
+            // the port files hold the tokens of the daemons
+            _daemonsDir.setReadable(false, false);
+            _daemonsDir.setWritable(false, false);
+            _daemonsDir.setExecutable(false, false);
+            _daemonsDir.setReadable(true, true);
+            _daemonsDir.setWritable(true, true);
+            _daemonsDir.setExecutable(true, true);
+        }
+        File dir = new File(_daemonsDir, name.toString());
+        dir.mkdirs();
+        return dir;
+    }
+
+    private void setUpLauncher(String mainClassName1, List<String> jvmArgs1, List<String> args1) {
+        _launcher.mainClassName = mainClassName1;
+        _launcher.jvmArgs.clear();
+        _launcher.addJvmArgs(jvmArgs1.toArray(new String[jvmArgs1.size()]));
+        _launcher.args.clear();
+        _launcher.addArgs(args1.toArray(new String[args1.size()]));
+    }
+
+    private static void close(Socket socket) {
+        try {
+            if (socket != null) {
+                socket.close();
+            }
+        } catch (IOException exc) {
+            // ignore
+        }
+    }
+
+    /**
+     * @return a connection to the daemon, started if no daemon answers
+     */
+    private Socket connect(File dir) throws Exception {
+        Socket back = ping(dir);
+        if (back != null) {
+            return back;
+        }
+        synchronized (_startLock) {
+            // started by an other thread?
+            back = ping(dir);
+            if (back != null) {
+                return back;
+            }
+            return start(dir);
+        }
+    }
+
+    private Socket start(File dir) throws Exception {
+        // the port file of the previous daemon (if any) is replaced by the new daemon
+        setUpLauncher(CompileDaemon.class.getName(), jvmArgs, Arrays.asList(dir.getAbsolutePath(), String.valueOf(_idleTimeout), mainClassName));
+        _launcher.addToClasspath(new File(MainHelper.locateJar(CompileDaemon.class)));
+        List<String> cmd = _launcher.buildCommand();
+        requester.getLog().info("start compile daemon (stopped after " + _idleTimeout + " min without compilation)");
+        if (requester.getLog().isDebugEnabled()) {
+            requester.getLog().debug("cmd: " + StringUtils.join(cmd.iterator(), " "));
+        }
+        ProcessBuilder pb = new ProcessBuilder(cmd);
+        pb.redirectErrorStream(true);
+        Process process = pb.start();
+        process.getOutputStream().close();
+        // the daemon redirects its output to its log file, only errors of the jvm startup are written on the stream
+        ByteArrayOutputStream startupOutput = new ByteArrayOutputStream();
+        drain(process.getInputStream(), startupOutput);
+        long deadline = System.currentTimeMillis() + START_TIMEOUT;
+        while (System.currentTimeMillis() < deadline) {
+            Thread.sleep(100);
+            Socket back = ping(dir);
+            if (back != null) {
+                return back;
+            }
+            try {
+                int exitValue = process.exitValue();
+                throw new MojoFailureException("compile daemon failed to start (exit value: " + exitValue + "): " + startupOutput.toString());
+            } catch (IllegalThreadStateException exc) {
+                // still running
+            }
+        }
+        process.destroy();
+        throw new MojoFailureException("compile daemon doesn't answer after " + START_TIMEOUT + " ms (see " + new File(dir, CompileDaemon.LOG_FILE) + ")");
+    }
+
+    private static void drain(final InputStream in, final OutputStream out) {
+        Thread t = new Thread("compile daemon output") {
+            @Override
+            public void run() {
+                try {
+                    IOUtil.copy(in, out);
+                } catch (IOException exc) {
+                    // the stream is closed
+                }
+            }
+        };
+        t.setDaemon(true);
+        t.start();
+    }
+
+    /**
+     * A daemon answers a ping even while it compiles, a daemon that accepts the connection but doesn't answer in time
+     * is considered as alive (overloaded), only a daemon that doesn't accept connections is considered as stopped.
+     *
+     * @return a connection (for the next request) to the daemon, or null if no daemon is running
+     */
+    private static Socket ping(File dir) {
+        Socket socket = null;
+        try {
+            socket = open(dir);
+            if (socket == null) {
+                return null;
+            }
+            DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+            out.writeLong(tokenOf(dir));
+            out.writeInt(CompileDaemon.PING);
+            out.flush();
+            try {
+                if (new DataInputStream(socket.getInputStream()).readInt() != CompileDaemon.PONG) {
+                    return null;
+                }
+            } catch (SocketTimeoutException exc) {
+                // alive but busy
+            }
+            socket.close();
+            return open(dir);
+        } catch (Exception exc) {
+            return null;
+        } finally {
+            close(socket);
+        }
+    }
+
+    private static Socket open(File dir) throws IOException {
+        String content = CompileDaemon.readPortFile(new File(dir, CompileDaemon.PORT_FILE));
+        if (content == null) {
+            return null;
+        }
+        Socket socket = new Socket();
+        socket.connect(new InetSocketAddress(InetAddress.getByName("127.0.0.1"), Integer.parseInt(content.split(" ")[0])), PING_TIMEOUT);
+        socket.setSoTimeout(PING_TIMEOUT);
+        return socket;
+    }
+
+    private static long tokenOf(File dir) throws IOException {
+        String content = CompileDaemon.readPortFile(new File(dir, CompileDaemon.PORT_FILE));
+        if (content == null) {
+            throw new IOException("no port file in " + dir);
+        }
+        return Long.parseLong(content.split(" ")[1]);
+    }
+
+    private void sendCompile(Socket socket, File dir) throws IOException {
+        // the compilation could be long
+        socket.setSoTimeout(0);
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        out.writeLong(tokenOf(dir));
+        out.writeInt(CompileDaemon.COMPILE);
+        out.writeInt(args.size());
+        for (String arg : args) {
+            CompileDaemon.writeString(out, arg);
+        }
+        out.flush();
+    }
+
+    /**
+     * @return the exit value
+     */
+    private static int readResponse(Socket socket, OutputStream output) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        byte[] buffer = new byte[8192];
+        int length = in.readInt();
+        while (length != CompileDaemon.END_OF_OUTPUT) {
+            if (length < 0) {
+                throw new EOFException("invalid response of the compile daemon");
+            }
+            if (length > buffer.length) {
+                buffer = new byte[length];
+            }
+            in.readFully(buffer, 0, length);
+            output.write(buffer, 0, length);
+            length = in.readInt();
+        }
+        return in.readInt();
+    }
+}
@@ -8,7 +8,6 @@ import org.apache.commons.exec.CommandLine;
 import org.apache.commons.exec.DefaultExecutor;
 import org.apache.commons.exec.ExecuteException;
 import org.apache.commons.exec.Executor;
-import org.apache.commons.exec.LogOutputStream;
 import org.apache.commons.exec.OS;
 import org.apache.commons.exec.PumpStreamHandler;
 import org.apache.maven.plugin.AbstractMojo;
@@ -16,7 +15,6 @@ import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.toolchain.Toolchain;
 import org.codehaus.plexus.util.StringUtils;
 
-import scala_maven_executions.LogProcessorUtils.LevelState;
 import util.JavaLocator;
 
 /**
@@ -36,6 +34,8 @@ public class JavaMainCallerByFork extends JavaMainCallerSupport {
 
     private boolean _redirectToLog;
 
+    private File _cdsDir;
+
     public JavaMainCallerByFork(AbstractMojo requester1, String mainClassName1, String classpath, String[] jvmArgs1, String[] args1, boolean forceUseArgFile, Toolchain toolchain) throws Exception {
         super(requester1, mainClassName1, classpath, jvmArgs1, args1);
         for (String key : System.getenv().keySet()) {
@@ -46,47 +46,48 @@ public class JavaMainCallerByFork extends JavaMainCallerSupport {
         _forceUseArgFile = forceUseArgFile;
     }
 
+    /**
+     * Uses (or creates) a class data sharing archive of the jvm, jvm arguments and classpath (see {@link CdsArchive}).
+     *
+     * @param dir directory of the archives
+     */
+    public void useCdsArchive(File dir) {
+        _cdsDir = dir;
+    }
+
     @Override
     public boolean run(boolean displayCmd, boolean throwFailure) throws Exception {
         List<String> cmd = buildCommand();
+        CdsArchive cds = null;
+        if (_cdsDir != null) {
+            // jvm arguments and main class
+            cds = CdsArchive.of(_cdsDir, _javaExec, cmd.subList(1, jvmArgs.size() + 2));
+            if (cds != null) {
+                cmd.addAll(1, cds.jvmArgs());
+            } else {
+                requester.getLog().debug("class data sharing archive not supported by " + _javaExec + " (java " + CdsArchive.MIN_JAVA_VERSION + "+ required)");
+            }
+        }
         displayCmd(displayCmd, cmd);
         Executor exec = new DefaultExecutor();
 
         //err and out are redirected to out
+        MojoLogOutputStream log = null;
         if (!_redirectToLog) {
           exec.setStreamHandler(new PumpStreamHandler(System.out, System.err, System.in));
         } else {
-            exec.setStreamHandler(new PumpStreamHandler(new LogOutputStream() {
-                private LevelState _previous = new LevelState();
-                
-                @Override
-                protected void processLine(String line, int level) {
-                  try {
-                    _previous = LogProcessorUtils.levelStateOf(line, _previous);
-                    switch (_previous.level) {
-                    case ERROR:
-                      requester.getLog().error(line);
-                      break;
-                    case WARNING:
-                      requester.getLog().warn(line);
-                      break;
-                    default:
-                      requester.getLog().info(line);
-                      break;
-                    }
-                  } catch (Exception e) {
-                    e.printStackTrace();
-                  }
-                }
-            }));
+            log = new MojoLogOutputStream(requester, maxSameWarnings);
+            exec.setStreamHandler(new PumpStreamHandler(log));
         }
 
         CommandLine cl = new CommandLine(cmd.get(0));
         for (int i = 1; i < cmd.size(); i++) {
             cl.addArgument(cmd.get(i), false);
         }
+        boolean success = false;
         try {
             int exitValue = exec.execute(cl);
+            success = (exitValue == 0);
             if (exitValue != 0) {
                 if (throwFailure) {
                     throw new MojoFailureException("command line returned non-zero value:" + exitValue);
@@ -100,6 +101,13 @@ public class JavaMainCallerByFork extends JavaMainCallerSupport {
                 throw exc;
             }
             return false;
+        } finally {
+            if (log != null) {
+                log.close();
+            }
+            if (cds != null && cds.commit(success)) {
+                requester.getLog().info("class data sharing archive created for the next runs: " + cds.getFile());
+            }
         }
     }
 
@@ -147,6 +155,10 @@ public class JavaMainCallerByFork extends JavaMainCallerSupport {
         }
     }
 
+    String getJavaExec() {
+        return _javaExec;
+    }
+
     protected List<String> buildCommand() throws Exception {
         ArrayList<String> back = new ArrayList<String>(2 + jvmArgs.size() + args.size());
         back.add(_javaExec);
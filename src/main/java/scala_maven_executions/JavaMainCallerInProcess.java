@@ -1,12 +1,9 @@
 package scala_maven_executions;
 
-import java.io.File;
-import java.net.MalformedURLException;
-import java.net.URL;
-import java.net.URLClassLoader;
-import java.util.ArrayList;
+import java.io.OutputStream;
 
 import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoFailureException;
 import org.codehaus.plexus.util.StringUtils;
 /**
  * This class will call a java main method via reflection.
@@ -18,25 +15,29 @@ import org.codehaus.plexus.util.StringUtils;
  */
 public class JavaMainCallerInProcess extends JavaMainCallerSupport {
 
-    private ClassLoader _cl = null;
+    private final String _classpath;
+    private final Object _build;
+    private final boolean _keepClassLoader;
 
-    public JavaMainCallerInProcess(AbstractMojo requester,  String mainClassName, String classpath, String[] jvmArgs, String[] args) throws Exception {
-        super(requester, mainClassName, "", jvmArgs, args);
+    private boolean _redirectToLog;
 
-        //Pull out classpath and create class loader
-        ArrayList<URL> urls = new ArrayList<URL>();
-        for(String path : classpath.split(File.pathSeparator)) {
-            try {
-                urls.add(new File(path).toURI().toURL());
-            } catch (MalformedURLException e) {
-                //TODO - Do something usefull here...
-                requester.getLog().error(e);
-            }
-        }
-        _cl = new URLClassLoader(urls.toArray(new URL[urls.size()]), (ClassLoader)null);
+    public JavaMainCallerInProcess(AbstractMojo requester,  String mainClassName, String classpath, String[] jvmArgs, String[] args) throws Exception {
+        this(requester, mainClassName, classpath, jvmArgs, args, null, false);
     }
 
-
+    /**
+     * The class loaders of the classpath are shared by the callers with the same classpath (see {@link ToolClassLoaders}).
+     *
+     * @param build the object identifying the current build, shared by its modules (the request of the session),
+     *  the class loaders of the previous builds are closed (or null)
+     * @param keepClassLoader true to keep the class loader for the next builds (long-lived maven processes)
+     */
+    public JavaMainCallerInProcess(AbstractMojo requester,  String mainClassName, String classpath, String[] jvmArgs, String[] args, Object build, boolean keepClassLoader) throws Exception {
+        super(requester, mainClassName, "", jvmArgs, args);
+        _classpath = classpath;
+        _build = build;
+        _keepClassLoader = keepClassLoader;
+    }
 
     @Override
     public void addJvmArgs(String... args0) {
@@ -91,14 +92,36 @@ public class JavaMainCallerInProcess extends JavaMainCallerSupport {
         if(displayCmd) {
             requester.getLog().info("cmd : " + mainClassName + "(" + StringUtils.join(argArray, ",")+")");
         }
-        MainHelper.runMain(mainClassName, args, _cl);
+        ThreadOutputStream.install();
+        MojoLogOutputStream log = _redirectToLog ? new MojoLogOutputStream(requester, maxSameWarnings) : null;
+        OutputStream previousOutput = (log != null) ? ThreadOutputStream.redirect(log) : null;
+        // the class loader is used by this run only (the tools keep their state in static fields)
+        ClassLoader cl = ToolClassLoaders.acquire(_classpath, _build, _keepClassLoader);
+        Thread current = Thread.currentThread();
+        ClassLoader previous = current.getContextClassLoader();
+        current.setContextClassLoader(cl);
+        try {
+            if (!CompileDaemon.runTool(cl.loadClass(mainClassName), argArray)) {
+                throw new MojoFailureException(mainClassName + " reported errors");
+            }
+        } finally {
+            current.setContextClassLoader(previous);
+            ToolClassLoaders.release(cl);
+            if (log != null) {
+                ThreadOutputStream.redirect(previousOutput);
+                log.close();
+            }
+        }
     }
 
 
 
+    /**
+     * The output (System.out and System.err) of the thread running the tool is sent to the log.
+     */
     @Override
     public void redirectToLog() {
-        requester.getLog().warn("redirection to log is not supported for 'inProcess' mode");
+        _redirectToLog = true;
     }
 
 
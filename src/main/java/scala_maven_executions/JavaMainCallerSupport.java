@@ -18,6 +18,7 @@ public abstract class JavaMainCallerSupport implements JavaMainCaller {
     protected String mainClassName;
     protected List<String> jvmArgs = new ArrayList<String>();
     protected List<String> args = new ArrayList<String>();
+    protected int maxSameWarnings = 0;
 
 
     protected JavaMainCallerSupport(AbstractMojo requester1, String mainClassName1, String classpath, String[] jvmArgs1, String[] args1) throws Exception {
@@ -105,6 +106,11 @@ public abstract class JavaMainCallerSupport implements JavaMainCaller {
         this.env.add(key + "=" + value);
 
     }
+    @Override
+    public void hideRepeatedWarnings(int maxSameWarnings1) {
+        this.maxSameWarnings = maxSameWarnings1;
+    }
+
     @Override
     public void run(boolean displayCmd) throws Exception {
         run(displayCmd, true);
@@ -13,26 +13,59 @@ public class LogProcessorUtils {
 
   public static LevelState levelStateOf(String line, LevelState previous) throws Exception {
     LevelState back = new LevelState();
-    String lineLowerCase = line.toLowerCase();
-    if (lineLowerCase.indexOf("error") > -1) {
-      back.level = Level.ERROR;
-      if (lineLowerCase.contains(".scala")) {
-        back.untilContains = "^";
-      }
-    } else if (lineLowerCase.indexOf("warn") > -1) {
-      back.level = Level.WARNING;
-      if (lineLowerCase.contains(".scala")) {
-        back.untilContains = "^";
-      }
-    } else if (previous.untilContains != null) {
-      if (!lineLowerCase.contains(previous.untilContains)) {
-        back = previous;
-      } else {
-        back.level = previous.level;
-        back.untilContains = null;
+    back.level = previous.level;
+    back.untilContains = previous.untilContains;
+    update(line, back);
+    return back;
+  }
+
+  /**
+   * Same as {@link #levelStateOf(String, LevelState)}, but updates the state (to not allocate a state per line).
+   *
+   * @return true if the line starts a new error or warning
+   */
+  public static boolean update(String line, LevelState state) {
+    if (containsIgnoreCase(line, "error")) {
+      state.level = Level.ERROR;
+      state.untilContains = containsIgnoreCase(line, ".scala") ? "^" : null;
+      return true;
+    }
+    if (containsIgnoreCase(line, "warn")) {
+      state.level = Level.WARNING;
+      state.untilContains = containsIgnoreCase(line, ".scala") ? "^" : null;
+      return true;
+    }
+    if (state.untilContains != null) {
+      if (containsIgnoreCase(line, state.untilContains)) {
+        state.untilContains = null;
       }
+    } else {
+      state.level = Level.INFO;
     }
-    return back;
+    return false;
+  }
+
+  public static boolean containsIgnoreCase(String line, String lowerCaseWord) {
+    return indexOfIgnoreCase(line, lowerCaseWord) > -1;
   }
 
+  /**
+   * @param lowerCaseWord the searched word, in lower case
+   * @return the index of the word in the line ignoring the case (without copy of the line), or -1
+   */
+  public static int indexOfIgnoreCase(String line, String lowerCaseWord) {
+    int length = lowerCaseWord.length();
+    if (length == 0) {
+      return 0;
+    }
+    char first = lowerCaseWord.charAt(0);
+    char firstUpper = Character.toUpperCase(first);
+    for (int i = 0, max = line.length() - length; i <= max; i++) {
+      char c = line.charAt(i);
+      if ((c == first || c == firstUpper) && line.regionMatches(true, i + 1, lowerCaseWord, 1, length - 1)) {
+        return i;
+      }
+    }
+    return -1;
+  }
 }
@@ -0,0 +1,97 @@
+package scala_maven_executions;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.commons.exec.LogOutputStream;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.logging.Log;
+
+import scala_maven_executions.LogProcessorUtils.Level;
+import scala_maven_executions.LogProcessorUtils.LevelState;
+
+/**
+ * Redirects the lines of an output (of the compiler) to the log of the requester, at the level detected from the line.
+ *
+ * Optionally, a warning (of a source file) repeated more than a max number of times (same message in other places,
+ * like deprecations or lint warnings) is no more displayed, the number of hidden warnings is displayed on close.
+ */
+class MojoLogOutputStream extends LogOutputStream {
+
+    /**
+     * Max number of distinct warning messages counted (the next messages are always displayed).
+     */
+    private static final int MAX_TRACKED_WARNINGS = 10000;
+
+    private final AbstractMojo _requester;
+    private final int _maxSameWarnings;
+    private final LevelState _state = new LevelState();
+    private final Map<String, int[]> _warnings = new LinkedHashMap<String, int[]>();
+    private boolean _hidden;
+
+    /**
+     * @param maxSameWarnings max number of times a warning message is displayed, 0 to display every warning
+     */
+    MojoLogOutputStream(AbstractMojo requester, int maxSameWarnings) {
+        _requester = requester;
+        _maxSameWarnings = maxSameWarnings;
+    }
+
+    @Override
+    protected synchronized void processLine(String line, int level) {
+        if (LogProcessorUtils.update(line, _state)) {
+            _hidden = (_maxSameWarnings > 0) && (_state.level == Level.WARNING) && (_state.untilContains != null) && isRepeatedWarning(line);
+        }
+        if (_hidden) {
+            // the lines of the warning are hidden until its last line (the caret)
+            _hidden = (_state.untilContains != null);
+            return;
+        }
+        Log log = _requester.getLog();
+        switch (_state.level) {
+        case ERROR:
+          log.error(line);
+          break;
+        case WARNING:
+          log.warn(line);
+          break;
+        default:
+          log.info(line);
+          break;
+        }
+    }
+
+    /**
+     * @return true if the message of the warning was already displayed the max number of times
+     */
+    private boolean isRepeatedWarning(String line) {
+        int i = LogProcessorUtils.indexOfIgnoreCase(line, "warning:");
+        String message = (i > -1) ? line.substring(i) : line;
+        int[] count = _warnings.get(message);
+        if (count == null) {
+            if (_warnings.size() < MAX_TRACKED_WARNINGS) {
+                _warnings.put(message, new int[]{1});
+            }
+            return false;
+        }
+        count[0]++;
+        return count[0] > _maxSameWarnings;
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            super.close();
+        } catch (IOException exc) {
+            // nothing to close
+        }
+        for (Map.Entry<String, int[]> e : _warnings.entrySet()) {
+            int hidden = e.getValue()[0] - _maxSameWarnings;
+            if (hidden > 0) {
+                _requester.getLog().warn(String.format("%d more warning(s) not displayed: %s", hidden, e.getKey()));
+            }
+        }
+        _warnings.clear();
+    }
+}
@@ -0,0 +1,101 @@
+package scala_maven_executions;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+
+/**
+ * Output stream installed as System.out and System.err, that writes to the stream registered for the current thread
+ * (and the threads it creates), or else to the original stream.
+ *
+ * It allows to capture the output of a tool run in process (by one thread of a parallel build) without capturing
+ * the output of the other threads.
+ */
+class ThreadOutputStream extends OutputStream {
+
+    private static final InheritableThreadLocal<OutputStream> _targets = new InheritableThreadLocal<OutputStream>();
+
+    /**
+     * Set while a target writes (a target that logs could write to System.out), to send its output to the original stream.
+     */
+    private static final ThreadLocal<Boolean> _inTarget = new ThreadLocal<Boolean>();
+
+    private final OutputStream _default;
+
+    private ThreadOutputStream(OutputStream defaultTarget) {
+        _default = defaultTarget;
+    }
+
+    /**
+     * Replaces System.out and System.err (once).
+     * Should be called before the first run of a tool (scala.Console keeps the System.out and System.err of its initialization).
+     */
+    static synchronized void install() {
+        if (!(System.out instanceof RoutingPrintStream)) {
+            System.setOut(new RoutingPrintStream(new ThreadOutputStream(System.out)));
+        }
+        if (!(System.err instanceof RoutingPrintStream)) {
+            System.setErr(new RoutingPrintStream(new ThreadOutputStream(System.err)));
+        }
+    }
+
+    /**
+     * Sends the output of the current thread (System.out and System.err) to the target.
+     *
+     * @param target the target, or null to use the original streams
+     * @return the previous target of the thread (to restore), or null
+     */
+    static OutputStream redirect(OutputStream target) {
+        System.out.flush();
+        System.err.flush();
+        OutputStream back = _targets.get();
+        _targets.set(target);
+        return back;
+    }
+
+    private OutputStream target() {
+        OutputStream back = _targets.get();
+        return (back != null && _inTarget.get() == null) ? back : _default;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        OutputStream target = target();
+        if (target == _default) {
+            _default.write(b);
+            return;
+        }
+        _inTarget.set(Boolean.TRUE);
+        try {
+            target.write(b);
+        } finally {
+            _inTarget.remove();
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        OutputStream target = target();
+        if (target == _default) {
+            _default.write(b, off, len);
+            return;
+        }
+        _inTarget.set(Boolean.TRUE);
+        try {
+            target.write(b, off, len);
+        } finally {
+            _inTarget.remove();
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        target().flush();
+    }
+
+    private static class RoutingPrintStream extends PrintStream {
+        RoutingPrintStream(ThreadOutputStream out) {
+            super(out, true);
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package scala_maven_executions;
+
+import java.io.File;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Method;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.IdentityHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JVM wide cache of the class loaders of the tools (scalac, scaladoc,...) run in process, keyed by the tool classpath.
+ *
+ * Reusing a class loader avoids to reload (and re-JIT) the classes of the compiler for each module.
+ * The tools keep their state (reporter,...) in static fields, so a class loader is used by one run at a time:
+ * a run acquires an idle class loader of its classpath (or a new one when every class loader is in use, with "mvn -T")
+ * and releases it at the end. Only idle class loaders are closed:
+ * <ul>
+ * <li>the class loaders of a build are closed when an other build uses the cache (the build is ended), unless they are
+ * kept across builds (long-lived maven processes that run several builds),</li>
+ * <li>the least recently used class loader is closed when more than {@link #MAX_SIZE} class loaders are idle.</li>
+ * </ul>
+ * A build is identified by an object shared by the modules (the request of the session, not the session cloned
+ * for each module with "mvn -T"), held by weak references so an ended build is not kept reachable.
+ */
+class ToolClassLoaders {
+
+    /**
+     * Max number of idle class loaders kept in the cache (a project rarely uses more than one or two scala versions).
+     */
+    static final int MAX_SIZE = 5;
+
+    private static class Entry {
+        final String classpath;
+        final URLClassLoader loader;
+        WeakReference<Object> build;
+        boolean keepAcrossBuilds;
+
+        Entry(String classpath, URLClassLoader loader) {
+            this.classpath = classpath;
+            this.loader = loader;
+        }
+    }
+
+    /**
+     * Idle class loaders, the most recently released last.
+     */
+    private static final LinkedList<Entry> _idle = new LinkedList<Entry>();
+    private static final Map<ClassLoader, Entry> _inUse = new IdentityHashMap<ClassLoader, Entry>();
+    private static WeakReference<Object> _currentBuild;
+
+    /**
+     * The class loader must be released (see {@link #release(ClassLoader)}) after the run.
+     *
+     * @param classpath the tool classpath (path separated)
+     * @param build the object identifying the current build (shared by its modules), or null
+     * @param keepAcrossBuilds true to keep the class loader for the next builds
+     */
+    static synchronized ClassLoader acquire(String classpath, Object build, boolean keepAcrossBuilds) throws MalformedURLException {
+        if (build != null && (_currentBuild == null || build != _currentBuild.get())) {
+            _currentBuild = new WeakReference<Object>(build);
+            closeEnded();
+        }
+        Entry entry = null;
+        for (Iterator<Entry> it = _idle.descendingIterator(); it.hasNext();) {
+            Entry idle = it.next();
+            if (idle.classpath.equals(classpath)) {
+                entry = idle;
+                it.remove();
+                break;
+            }
+        }
+        if (entry == null) {
+            entry = new Entry(classpath, new URLClassLoader(urlsOf(classpath), null));
+        }
+        entry.build = (build != null) ? new WeakReference<Object>(build) : null;
+        entry.keepAcrossBuilds = keepAcrossBuilds;
+        _inUse.put(entry.loader, entry);
+        return entry.loader;
+    }
+
+    /**
+     * Makes the class loader available for the next runs, or closes it if its build is ended.
+     */
+    static synchronized void release(ClassLoader loader) {
+        Entry entry = _inUse.remove(loader);
+        if (entry == null) {
+            return;
+        }
+        if (isEnded(entry)) {
+            close(entry);
+            return;
+        }
+        _idle.addLast(entry);
+        while (_idle.size() > MAX_SIZE) {
+            close(_idle.removeFirst());
+        }
+    }
+
+    private static boolean isEnded(Entry entry) {
+        if (entry.build == null || entry.keepAcrossBuilds) {
+            return false;
+        }
+        Object build = entry.build.get();
+        return build == null || _currentBuild == null || build != _currentBuild.get();
+    }
+
+    /**
+     * Closes the idle class loaders of the ended builds (the ones in use are closed when released).
+     */
+    private static void closeEnded() {
+        for (Iterator<Entry> it = _idle.iterator(); it.hasNext();) {
+            Entry entry = it.next();
+            if (isEnded(entry)) {
+                close(entry);
+                it.remove();
+            }
+        }
+    }
+
+    static synchronized int idleCount() {
+        return _idle.size();
+    }
+
+    /**
+     * Releases the jars opened by the class loader (URLClassLoader.close() is only available since java 7).
+     */
+    private static void close(Entry entry) {
+        try {
+            Method close = URLClassLoader.class.getMethod("close");
+            close.invoke(entry.loader);
+        } catch (NoSuchMethodException exc) {
+            // java 6: the jars are released by the garbage collector
+        } catch (Exception exc) {
+            // ignore, the class loader is no more used
+        }
+    }
+
+    private static URL[] urlsOf(String classpath) throws MalformedURLException {
+        List<URL> urls = new ArrayList<URL>();
+        for (String path : classpath.split(File.pathSeparator)) {
+            if (path.length() > 0) {
+                urls.add(new File(path).toURI().toURL());
+            }
+        }
+        return urls.toArray(new URL[urls.size()]);
+    }
+}
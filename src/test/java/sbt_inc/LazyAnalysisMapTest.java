@@ -0,0 +1,37 @@
+package sbt_inc;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import sbt.inc.Analysis;
+
+public class LazyAnalysisMapTest extends TestCase {
+
+  public void testLoadOnLookup() throws Exception {
+    File dir = new File("target/tests/LazyAnalysisMapTest").getAbsoluteFile();
+    File upstream = new File(dir, "upstream/classes");
+    File other = new File(dir, "other/classes");
+    File classes = new File(dir, "classes");
+    upstream.mkdirs();
+    other.mkdirs();
+    Map<File, File> cacheMap = new HashMap<File, File>();
+    cacheMap.put(upstream, new File(dir, "upstream/analysis"));
+    cacheMap.put(other, new File(dir, "other/analysis"));
+
+    scala.collection.immutable.Map<File, Analysis> map = LazyAnalysisMap.create(Arrays.asList(upstream), classes, cacheMap);
+    LazyAnalysisMap handler = LazyAnalysisMap.handlerOf(map);
+    assertEquals(0, handler.loadedCount());
+    assertEquals(1, map.size());
+
+    assertTrue(map.get(other).isEmpty());
+    assertEquals(0, handler.loadedCount());
+
+    assertTrue(map.get(upstream).isDefined());
+    assertTrue(map.get(upstream).isDefined());
+    assertEquals(1, handler.loadedCount());
+  }
+}
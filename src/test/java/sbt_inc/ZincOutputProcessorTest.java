@@ -0,0 +1,60 @@
+package sbt_inc;
+
+import java.io.File;
+
+import junit.framework.TestCase;
+
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.codehaus.plexus.util.FileUtils;
+
+import xsbti.Problem;
+import xsbti.Severity;
+
+public class ZincOutputProcessorTest extends TestCase {
+
+  private static final String SRC = new File("src" + File.separator + "B.scala").getAbsolutePath();
+
+  private Problem[] parse(String... lines) throws Exception {
+    ZincOutputProcessor processor = new ZincOutputProcessor(new SystemStreamLog());
+    for (String line : lines) {
+      processor.write((line + "\n").getBytes("UTF-8"));
+    }
+    processor.close();
+    return processor.getProblems();
+  }
+
+  public void testProblems() throws Exception {
+    Problem[] problems = parse(
+      "[info] Compiling 2 Scala sources to /tmp/classes...",
+      "[error] " + SRC + ":3: type mismatch;",
+      "[error]  found   : Int(1)",
+      "[error]  required: String",
+      "[error]   def x: String = 1",
+      "[error]                   ^",
+      "[warn] " + SRC + ":5: a pure expression does nothing in statement position",
+      "[warn] one warning found",
+      "[error] one error found"
+    );
+    assertEquals(2, problems.length);
+
+    assertEquals(Severity.Error, problems[0].severity());
+    assertEquals("type mismatch;\n found   : Int(1)\n required: String", problems[0].message());
+    assertEquals(SRC, problems[0].position().sourcePath().get());
+    assertEquals(3, problems[0].position().line().get().intValue());
+    assertEquals("  def x: String = 1", problems[0].position().lineContent());
+    assertEquals(18, problems[0].position().pointer().get().intValue());
+
+    assertEquals(Severity.Warn, problems[1].severity());
+    assertEquals("a pure expression does nothing in statement position", problems[1].message());
+    assertFalse(problems[1].position().pointer().isDefined());
+  }
+
+  public void testReport() throws Exception {
+    Problem[] problems = parse("[error] " + SRC + ":3: not found: value <x>", "[error] a(<x>)", "[error]   ^");
+    File report = new File("target" + File.separator + "test-problems.xml");
+    ProblemReport.write(report, problems);
+    String xml = FileUtils.fileRead(report, "UTF-8");
+    assertTrue(xml, xml.contains("<file name=\"" + SRC + "\">"));
+    assertTrue(xml, xml.contains("line=\"3\" column=\"3\" severity=\"error\" message=\"not found: value &lt;x&gt;\""));
+  }
+}
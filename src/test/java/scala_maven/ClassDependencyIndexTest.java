@@ -0,0 +1,41 @@
+package scala_maven;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+public class ClassDependencyIndexTest extends TestCase {
+
+  private ClassDependencyIndex indexOfPluginClasses() throws Exception {
+    File classesDir = new File(ClassDependencyIndex.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+    return ClassDependencyIndex.build(classesDir);
+  }
+
+  public void testDefines() throws Exception {
+    ClassDependencyIndex index = indexOfPluginClasses();
+    assertTrue(index.defines("scala_maven/ScalaCompilerSupport.java"));
+    assertTrue(index.defines("scala_maven_executions/MainHelper.java"));
+    assertFalse(index.defines("scala_maven/Missing.java"));
+  }
+
+  public void testTransitiveDependents() throws Exception {
+    ClassDependencyIndex index = indexOfPluginClasses();
+    Set<String> dependents = index.dependentSourcesOf(Collections.singletonList("scala_maven/CompilerPool.java"));
+    assertTrue(dependents.contains("scala_maven/CompilerPool.java"));
+    // direct
+    assertTrue(dependents.contains("scala_maven/ScalaCompilerSupport.java"));
+    // through inheritance
+    assertTrue(dependents.contains("scala_maven/ScalaCompileMojo.java"));
+    assertFalse(dependents.contains("scala_maven/VersionNumber.java"));
+  }
+
+  public void testSourceKeyOf() throws Exception {
+    File root = new File("src" + File.separator + "main").getAbsoluteFile();
+    File source = new File(root, "foo" + File.separator + "Bar.scala");
+    assertEquals("foo/Bar.scala", ClassDependencyIndex.sourceKeyOf(source, Arrays.asList(new File("other").getAbsoluteFile(), root)));
+    assertNull(ClassDependencyIndex.sourceKeyOf(source, Collections.singletonList(new File("other").getAbsoluteFile())));
+  }
+}
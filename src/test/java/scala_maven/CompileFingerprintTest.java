@@ -0,0 +1,88 @@
+package scala_maven;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+public class CompileFingerprintTest extends TestCase {
+
+  private File _dir;
+  private File _source;
+  private File _lib;
+  private File _analysis;
+  private File _classes;
+  private File _file;
+
+  @Override
+  protected void setUp() throws Exception {
+    _dir = new File("target" + File.separator + "test-fingerprint").getAbsoluteFile();
+    FileUtils.deleteDirectory(_dir);
+    _dir.mkdirs();
+    _source = write("src/A.scala", "object A");
+    _lib = write("lib/a/A.class", "A");
+    _analysis = write("analysis", "analysis");
+    _classes = write("classes/a/A.class", "A").getParentFile().getParentFile();
+    write("classes/a/resource.txt", "resource");
+    _file = new File(_dir, "analysis.fingerprint");
+  }
+
+  private File write(String path, String content) throws Exception {
+    File f = new File(_dir, path);
+    f.getParentFile().mkdirs();
+    FileUtils.fileWrite(f.getPath(), content);
+    return f;
+  }
+
+  private CompileFingerprint compute(List<String> options) throws Exception {
+    return CompileFingerprint.compute(CompileFingerprint.load(_file), options, Collections.singletonList(new File(_dir, "lib").getPath()), Collections.singletonList(_source));
+  }
+
+  private void compiled() throws Exception {
+    CompileFingerprint fingerprint = compute(Arrays.asList("-deprecation"));
+    fingerprint.setOutputMarker(_analysis, _classes);
+    fingerprint.save(_file);
+  }
+
+  private boolean isUpToDate(String... options) throws Exception {
+    return compute(Arrays.asList(options)).isUpToDate(CompileFingerprint.load(_file), _analysis, _classes);
+  }
+
+  public void testUpToDate() throws Exception {
+    compiled();
+    assertTrue(isUpToDate("-deprecation"));
+    // same content
+    assertTrue(_source.setLastModified(_source.lastModified() - 10000));
+    assertTrue(isUpToDate("-deprecation"));
+  }
+
+  public void testChanges() throws Exception {
+    compiled();
+    assertFalse(isUpToDate("-feature"));
+    write("src/A.scala", "object A {}");
+    assertFalse(isUpToDate("-deprecation"));
+    compiled();
+    write("lib/a/B.class", "B");
+    assertFalse(isUpToDate("-deprecation"));
+    compiled();
+    write("analysis", "analysis by an other tool");
+    assertFalse(isUpToDate("-deprecation"));
+  }
+
+  public void testOutputClasses() throws Exception {
+    compiled();
+    // resources are copied again by each build
+    write("classes/a/resource.txt", "resource copied again");
+    assertTrue(isUpToDate("-deprecation"));
+    new File(_classes, "a/A.class").delete();
+    assertFalse(isUpToDate("-deprecation"));
+    compiled();
+    write("classes/a/A.class", "A modified");
+    assertFalse(isUpToDate("-deprecation"));
+    compiled();
+    FileUtils.deleteDirectory(_classes);
+    assertFalse(isUpToDate("-deprecation"));
+  }
+}
@@ -0,0 +1,136 @@
+package scala_maven;
+
+import java.util.Arrays;
+
+import org.apache.maven.execution.BuildSuccess;
+import org.apache.maven.execution.DefaultMavenExecutionRequest;
+import org.apache.maven.execution.DefaultMavenExecutionResult;
+import org.apache.maven.execution.MavenExecutionResult;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.model.Build;
+import org.apache.maven.model.Model;
+import org.apache.maven.model.Plugin;
+import org.apache.maven.model.PluginExecution;
+import org.apache.maven.project.MavenProject;
+
+import junit.framework.TestCase;
+
+public class DocAggregationTest extends TestCase {
+
+  private static final String PLUGIN_KEY = "net.alchim31.maven:scala-maven-plugin";
+
+  private MavenProject project(String artifactId, String packaging, MavenProject parent) {
+    Model model = new Model();
+    model.setGroupId("g");
+    model.setArtifactId(artifactId);
+    model.setVersion("1");
+    model.setPackaging(packaging);
+    MavenProject back = new MavenProject(model);
+    back.setParent(parent);
+    return back;
+  }
+
+  /** binds the doc-jar goal to the lifecycle of the module */
+  private MavenProject documented(MavenProject project) {
+    Plugin plugin = new Plugin();
+    plugin.setGroupId("net.alchim31.maven");
+    plugin.setArtifactId("scala-maven-plugin");
+    PluginExecution execution = new PluginExecution();
+    execution.addGoal("doc-jar");
+    plugin.addExecution(execution);
+    project.getModel().setBuild(new Build());
+    project.getModel().getBuild().addPlugin(plugin);
+    return project;
+  }
+
+  private MavenSession session(MavenExecutionResult result, MavenProject... projects) {
+    return new MavenSession(null, new DefaultMavenExecutionRequest(), result, Arrays.asList(projects));
+  }
+
+  public void testAggregateOnceAllModulesAreDocumented() throws Exception {
+    MavenProject root = project("root", "pom", null);
+    MavenProject a = documented(project("a", "jar", root));
+    MavenProject b = documented(project("b", "jar", root));
+    MavenProject p = project("p", "pom", root);
+    MavenProject c = documented(project("c", "jar", p));
+    MavenProject d = documented(project("d", "jar", root));
+    root.setCollectedProjects(Arrays.asList(a, b, p, c, d));
+    MavenExecutionResult result = new DefaultMavenExecutionResult();
+    MavenSession session = session(result, root, a, b, p, c, d);
+
+    DocAggregation aggregation = new DocAggregation();
+    // modules are built out of order
+    aggregation.setDocumented(c);
+    assertFalse(aggregation.startAggregation(root, session, false, PLUGIN_KEY));
+    aggregation.setDocumented(a);
+    assertFalse(aggregation.startAggregation(root, session, false, PLUGIN_KEY));
+    // d is built without doc (skipped,...)
+    result.addBuildSummary(new BuildSuccess(d, 0));
+    assertFalse(aggregation.startAggregation(root, session, false, PLUGIN_KEY));
+    aggregation.setDocumented(b);
+    assertTrue(aggregation.startAggregation(root, session, false, PLUGIN_KEY));
+    assertFalse(aggregation.startAggregation(root, session, false, PLUGIN_KEY));
+  }
+
+  public void testUndocumentedModuleBuiltLast() throws Exception {
+    MavenProject root = project("root", "pom", null);
+    MavenProject a = documented(project("a", "jar", root));
+    MavenProject b = documented(project("b", "jar", root));
+    MavenProject d = project("d", "jar", root);
+    root.setCollectedProjects(Arrays.asList(a, b, d));
+    MavenSession session = session(new DefaultMavenExecutionResult(), root, a, b, d);
+
+    assertTrue(DocAggregation.runsDoc(a, session, PLUGIN_KEY));
+    assertFalse(DocAggregation.runsDoc(d, session, PLUGIN_KEY));
+    DocAggregation aggregation = new DocAggregation();
+    aggregation.setDocumented(a);
+    assertFalse(aggregation.startAggregation(root, session, false, PLUGIN_KEY));
+    // d (not built yet) doesn't run the doc goal, so it's not waited for
+    aggregation.setDocumented(b);
+    assertTrue(aggregation.startAggregation(root, session, false, PLUGIN_KEY));
+  }
+
+  public void testSharedByTheSessionsOfTheModules() throws Exception {
+    MavenProject root = project("root", "pom", null);
+    MavenProject a = documented(project("a", "jar", root));
+    MavenProject b = documented(project("b", "jar", root));
+    root.setCollectedProjects(Arrays.asList(a, b));
+    // with "mvn -T", each module is built with its own clone of the session
+    DefaultMavenExecutionRequest request = new DefaultMavenExecutionRequest();
+    MavenExecutionResult result = new DefaultMavenExecutionResult();
+    MavenSession sessionA = new MavenSession(null, request, result, Arrays.asList(root, a, b));
+    MavenSession sessionB = new MavenSession(null, request, result, Arrays.asList(root, a, b));
+    assertSame(DocAggregation.of(sessionA), DocAggregation.of(sessionB));
+    assertNotSame(DocAggregation.of(sessionA), DocAggregation.of(session(result, root, a, b)));
+
+    DocAggregation.of(sessionA).setDocumented(a);
+    DocAggregation.of(sessionB).setDocumented(b);
+    assertTrue(DocAggregation.of(sessionB).startAggregation(root, sessionB, false, PLUGIN_KEY));
+  }
+
+  public void testDocRequestedOnCommandLine() throws Exception {
+    MavenProject root = project("root", "pom", null);
+    MavenProject d = project("d", "jar", root);
+    DefaultMavenExecutionRequest request = new DefaultMavenExecutionRequest();
+    request.setGoals(Arrays.asList("scala:doc"));
+    MavenSession session = new MavenSession(null, request, new DefaultMavenExecutionResult(), Arrays.asList(root, d));
+    assertTrue(DocAggregation.runsDoc(d, session, PLUGIN_KEY));
+  }
+
+  public void testAggregateDirectOnly() throws Exception {
+    MavenProject root = project("root", "pom", null);
+    MavenProject a = project("a", "jar", root);
+    MavenProject p = project("p", "pom", root);
+    MavenProject c = project("c", "jar", p);
+    root.setCollectedProjects(Arrays.asList(a, p, c));
+
+    assertTrue(DocAggregation.isAggregated(a, root, true));
+    assertFalse(DocAggregation.isAggregated(p, root, false));
+    assertFalse(DocAggregation.isAggregated(c, root, true));
+    assertTrue(DocAggregation.isAggregated(c, root, false));
+
+    DocAggregation aggregation = new DocAggregation();
+    aggregation.setDocumented(a);
+    assertTrue(aggregation.startAggregation(root, null, true, PLUGIN_KEY));
+  }
+}
@@ -0,0 +1,32 @@
+package scala_maven;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+public class FileUtilsTest extends TestCase {
+
+  private void assertSameAsFileOf(int nbDirs, boolean canonical) throws Exception {
+    // a root with a ".." segment, to check that it's resolved
+    File root = new File("target" + File.separator + ".." + File.separator + "src");
+    String[] paths = new String[nbDirs * 2];
+    for (int i = 0; i < nbDirs; i++) {
+      paths[2 * i] = "d" + i + File.separator + "A.scala";
+      paths[2 * i + 1] = "d" + i + File.separator + "sub" + File.separator + "B.scala";
+    }
+    List<File> expected = new ArrayList<File>();
+    for (String path : paths) {
+      expected.add(FileUtils.fileOf(new File(root, path), canonical));
+    }
+    assertEquals(expected, FileUtils.filesOf(root, paths, canonical));
+  }
+
+  public void testFilesOf() throws Exception {
+    assertSameAsFileOf(3, false);
+    assertSameAsFileOf(3, true);
+    // resolved in parallel
+    assertSameAsFileOf(100, true);
+  }
+}
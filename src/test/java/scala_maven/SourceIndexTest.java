@@ -0,0 +1,60 @@
+package scala_maven;
+
+import java.io.File;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+import org.codehaus.plexus.util.FileUtils;
+
+public class SourceIndexTest extends TestCase {
+
+  private File _root;
+  private File _indexDir;
+
+  @Override
+  protected void setUp() throws Exception {
+    File base = new File("target" + File.separator + "test-source-index").getAbsoluteFile();
+    FileUtils.deleteDirectory(base);
+    _root = new File(base, "src");
+    _indexDir = new File(base, "index");
+    touch("A.scala");
+    touch("foo/B.scala");
+    touch("foo/C.java");
+    touch("foo/README.txt");
+    touch("foo/.svn/D.scala");
+  }
+
+  private void touch(String path) throws Exception {
+    File file = new File(_root, path);
+    file.getParentFile().mkdirs();
+    FileUtils.fileWrite(file.getPath(), "//" + path);
+  }
+
+  private String[] find(String... includes) {
+    String[] back = SourceIndex.findFiles(_root, includes, new String[]{"**/C.*"}, _indexDir, null);
+    Arrays.sort(back);
+    return back;
+  }
+
+  private static String p(String path) {
+    return path.replace('/', File.separatorChar);
+  }
+
+  public void testFindFiles() throws Exception {
+    assertEquals(Arrays.asList("A.scala", p("foo/B.scala")), Arrays.asList(find("**/*.scala", "**/*.java")));
+    assertEquals(Arrays.asList(p("foo/B.scala"), p("foo/README.txt")), Arrays.asList(find("foo/")));
+  }
+
+  public void testDetectsNewAndRemovedFiles() throws Exception {
+    assertEquals(2, find("**/*.scala").length);
+    touch("foo/bar/E.scala");
+    assertTrue(new File(_root, "A.scala").delete());
+    assertEquals(Arrays.asList(p("foo/B.scala"), p("foo/bar/E.scala")), Arrays.asList(find("**/*.scala")));
+  }
+
+  public void testPersisted() throws Exception {
+    find("**/*.txt");
+    assertEquals(1, _indexDir.listFiles().length);
+  }
+}
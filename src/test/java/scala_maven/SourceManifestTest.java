@@ -0,0 +1,70 @@
+package scala_maven;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+
+import junit.framework.TestCase;
+
+public class SourceManifestTest extends TestCase {
+  private File dir;
+
+  @Override
+  protected void setUp() throws Exception {
+    dir = File.createTempFile("sourceManifest", "");
+    dir.delete();
+    dir.mkdirs();
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    FileUtils.deleteDirectory(dir);
+  }
+
+  private File write(String name, String content) throws Exception {
+    File f = new File(dir, name);
+    FileUtils.fileWrite(f.getAbsolutePath(), content);
+    return f;
+  }
+
+  public void testTouchedFileIsNotModified() throws Exception {
+    File a = write("A.scala", "class A");
+    SourceManifest previous = new SourceManifest().scan(Collections.singletonList(a));
+    a.setLastModified(a.lastModified() + 10000);
+    SourceManifest current = previous.scan(Collections.singletonList(a));
+    assertFalse(current.isModifiedSince(a, previous));
+  }
+
+  public void testChangedContentIsModified() throws Exception {
+    File a = write("A.scala", "class A");
+    SourceManifest previous = new SourceManifest().scan(Collections.singletonList(a));
+    write("A.scala", "class B");
+    a.setLastModified(a.lastModified() + 10000);
+    SourceManifest current = previous.scan(Collections.singletonList(a));
+    assertTrue(current.isModifiedSince(a, previous));
+  }
+
+  public void testNewAndRemovedFiles() throws Exception {
+    File a = write("A.scala", "class A");
+    File b = write("B.scala", "class B");
+    SourceManifest previous = new SourceManifest().scan(Collections.singletonList(a));
+    SourceManifest current = previous.scan(Arrays.asList(a, b));
+    assertTrue(current.isModifiedSince(b, previous));
+    assertFalse(current.hasRemovedFilesSince(previous));
+    assertTrue(previous.hasRemovedFilesSince(current));
+  }
+
+  public void testSaveAndLoad() throws Exception {
+    File a = write("A.scala", "class A");
+    File b = write("B.scala", "class B");
+    SourceManifest previous = new SourceManifest().scan(Arrays.asList(a, b));
+    File manifestFile = new File(dir, "manifest");
+    previous.save(manifestFile);
+    SourceManifest loaded = SourceManifest.load(manifestFile);
+    assertNotNull(loaded);
+    assertEquals(2, loaded.size());
+    assertFalse(previous.isModifiedSince(a, loaded));
+    assertFalse(previous.isModifiedSince(b, loaded));
+    assertNull(SourceManifest.load(new File(dir, "missing")));
+  }
+}
@@ -0,0 +1,49 @@
+package scala_maven;
+
+import java.io.File;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+public class SourceWatcherTest extends TestCase {
+
+  private File _dir;
+
+  @Override
+  protected void setUp() throws Exception {
+    _dir = new File("target" + File.separator + "test-watcher").getAbsoluteFile();
+    FileUtils.deleteDirectory(_dir);
+    new File(_dir, "foo").mkdirs();
+    FileUtils.fileWrite(new File(_dir, "foo/A.scala").getPath(), "object A");
+  }
+
+  public void testDetectModifiedSource() throws Exception {
+    final SourceWatcher watcher = SourceWatcher.create(Arrays.asList(_dir), new String[]{"**/*.scala"}, new String[0]);
+    try {
+      final boolean[] changed = new boolean[1];
+      Thread t = new Thread() {
+        @Override
+        public void run() {
+          try {
+            watcher.waitForChanges();
+            synchronized (changed) {
+              changed[0] = true;
+            }
+          } catch (Exception exc) {
+            // interrupted
+          }
+        }
+      };
+      t.setDaemon(true);
+      t.start();
+      Thread.sleep(200);
+      FileUtils.fileWrite(new File(_dir, "foo/A.scala").getPath(), "object A { val a = 1 }");
+      t.join(SourceWatcher.POLL_INTERVAL * 3);
+      synchronized (changed) {
+        assertTrue(changed[0]);
+      }
+    } finally {
+      watcher.close();
+    }
+  }
+}
@@ -0,0 +1,82 @@
+package scala_maven_executions;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.codehaus.plexus.util.FileUtils;
+
+public class CdsArchiveTest extends TestCase {
+
+  private final File _dir = new File("target/tests/CdsArchiveTest").getAbsoluteFile();
+
+  @Override
+  protected void setUp() throws Exception {
+    FileUtils.deleteDirectory(_dir);
+  }
+
+  private String javaExec(String home, String version) throws Exception {
+    File release = new File(_dir, home + "/release");
+    release.getParentFile().mkdirs();
+    FileUtils.fileWrite(release.getPath(), "IMPLEMENTOR=\"Eclipse Adoptium\"\nJAVA_VERSION=\"" + version + "\"\n");
+    return new File(_dir, home + "/bin/java").getPath();
+  }
+
+  public void testJavaVersion() throws Exception {
+    assertEquals(17, CdsArchive.javaVersionOf(javaExec("jdk17", "17.0.9")));
+    // java 8: the executable of java.home is in the jre
+    javaExec("jdk8", "1.8.0_392");
+    assertEquals(8, CdsArchive.javaVersionOf(new File(_dir, "jdk8/jre/bin/java").getPath()));
+    assertEquals(-1, CdsArchive.javaVersionOf(new File(_dir, "none/bin/java").getPath()));
+  }
+
+  public void testCreateThenUse() throws Exception {
+    List<String> jvmArgs = Arrays.asList("-Xmx1g", "scala.tools.nsc.Main");
+    File archives = new File(_dir, "archives");
+    assertNull(CdsArchive.of(archives, javaExec("jdk8", "1.8.0_392"), jvmArgs));
+
+    String java = javaExec("jdk17", "17.0.9");
+    CdsArchive cds = CdsArchive.of(archives, java, jvmArgs);
+    String create = cds.jvmArgs().get(1);
+    assertTrue(create.startsWith("-XX:ArchiveClassesAtExit="));
+    // the jvm writes the archive at exit
+    FileUtils.fileWrite(create.substring(create.indexOf('=') + 1), "archive");
+    assertTrue(cds.commit(true));
+    assertTrue(cds.getFile().exists());
+
+    CdsArchive next = CdsArchive.of(archives, java, jvmArgs);
+    assertEquals(cds.getFile(), next.getFile());
+    assertEquals("-XX:SharedArchiveFile=" + cds.getFile().getAbsolutePath(), next.jvmArgs().get(1));
+    assertFalse(next.commit(true));
+
+    assertFalse(cds.getFile().equals(CdsArchive.of(archives, java, Arrays.asList("-Xmx2g", "scala.tools.nsc.Main")).getFile()));
+  }
+
+  public void testReplacedWhenJarsAreUpdated() throws Exception {
+    File jar = new File(_dir, "lib/scala-compiler.jar");
+    jar.getParentFile().mkdirs();
+    FileUtils.fileWrite(jar.getPath(), "jar");
+    List<String> jvmArgs = Arrays.asList("-classpath", jar.getPath(), "scala.tools.nsc.Main");
+    File archives = new File(_dir, "archives");
+    String java = javaExec("jdk17", "17.0.9");
+    CdsArchive cds = create(archives, java, jvmArgs);
+    CdsArchive other = create(archives, java, Arrays.asList("-Xmx2g", "scala.tools.nsc.Main"));
+
+    jar.setLastModified(jar.lastModified() - 10000);
+    CdsArchive updated = create(archives, java, jvmArgs);
+    assertFalse(updated.getFile().equals(cds.getFile()));
+    assertFalse(cds.getFile().exists());
+    assertTrue(updated.getFile().exists());
+    assertTrue(other.getFile().exists());
+  }
+
+  private CdsArchive create(File archives, String java, List<String> jvmArgs) throws Exception {
+    CdsArchive cds = CdsArchive.of(archives, java, jvmArgs);
+    String create = cds.jvmArgs().get(1);
+    FileUtils.fileWrite(create.substring(create.indexOf('=') + 1), "archive");
+    assertTrue(cds.commit(true));
+    return cds;
+  }
+}
@@ -0,0 +1,125 @@
+package scala_maven_executions;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+import java.net.Socket;
+
+import junit.framework.TestCase;
+
+import org.codehaus.plexus.util.FileUtils;
+
+public class CompileDaemonTest extends TestCase {
+
+  /** fake compiler */
+  public static class Compiler {
+    public static boolean process(String[] args) throws Exception {
+      if ("Slow.scala".equals(args[0])) {
+        Thread.sleep(1500);
+      }
+      System.out.print("compile " + args.length + " files");
+      return !"Bad.scala".equals(args[0]);
+    }
+  }
+
+  private File _dir;
+  private Thread _server;
+  private PrintStream _systemOut;
+
+  @Override
+  protected void setUp() throws Exception {
+    _dir = new File("target" + File.separator + "test-compile-daemon").getAbsoluteFile();
+    FileUtils.deleteDirectory(_dir);
+    _dir.mkdirs();
+    // like CompileDaemon.main
+    CompileDaemon.SwitchableOutputStream output = new CompileDaemon.SwitchableOutputStream(new ByteArrayOutputStream());
+    _systemOut = System.out;
+    System.setOut(new PrintStream(output, true));
+    final CompileDaemon daemon = new CompileDaemon(_dir, Compiler.class.getName(), output);
+    // longer than the joins of the tests, except for the test of the idle timeout
+    final long idleTimeout = "testIdleTimeout".equals(getName()) ? 2000 : 60000;
+    _server = new Thread() {
+      @Override
+      public void run() {
+        try {
+          daemon.serve(idleTimeout);
+        } catch (Exception exc) {
+          exc.printStackTrace();
+        }
+      }
+    };
+    _server.start();
+    File portFile = new File(_dir, CompileDaemon.PORT_FILE);
+    for (int i = 0; i < 50 && !portFile.exists(); i++) {
+      Thread.sleep(100);
+    }
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    System.setOut(_systemOut);
+  }
+
+  private DataInputStream request(int command, String... args) throws Exception {
+    String[] portFile = CompileDaemon.readPortFile(new File(_dir, CompileDaemon.PORT_FILE)).split(" ");
+    Socket socket = new Socket("127.0.0.1", Integer.parseInt(portFile[0]));
+    DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+    out.writeLong(Long.parseLong(portFile[1]));
+    out.writeInt(command);
+    if (command == CompileDaemon.COMPILE) {
+      out.writeInt(args.length);
+      for (String arg : args) {
+        CompileDaemon.writeString(out, arg);
+      }
+    }
+    out.flush();
+    return new DataInputStream(socket.getInputStream());
+  }
+
+  private String compile(String... args) throws Exception {
+    return readOutput(request(CompileDaemon.COMPILE, args));
+  }
+
+  private String readOutput(DataInputStream in) throws Exception {
+    StringBuilder output = new StringBuilder();
+    int length = in.readInt();
+    while (length != CompileDaemon.END_OF_OUTPUT) {
+      byte[] bytes = new byte[length];
+      in.readFully(bytes);
+      output.append(new String(bytes, "UTF-8"));
+      length = in.readInt();
+    }
+    return output + " => " + in.readInt();
+  }
+
+  public void testRequests() throws Exception {
+    assertEquals(CompileDaemon.PONG, request(CompileDaemon.PING).readInt());
+    assertEquals("compile 2 files => 0", compile("A.scala", "B.scala"));
+    assertEquals("compile 1 files => 1", compile("Bad.scala"));
+    assertEquals(CompileDaemon.PONG, request(CompileDaemon.SHUTDOWN).readInt());
+    _server.join(5000);
+    assertFalse(_server.isAlive());
+    assertFalse(new File(_dir, CompileDaemon.PORT_FILE).exists());
+  }
+
+  public void testPingWhileCompiling() throws Exception {
+    DataInputStream compilation = request(CompileDaemon.COMPILE, "Slow.scala");
+    Thread.sleep(200);
+    long t0 = System.currentTimeMillis();
+    assertEquals(CompileDaemon.PONG, request(CompileDaemon.PING).readInt());
+    assertTrue(System.currentTimeMillis() - t0 < 1000);
+    assertEquals("compile 1 files => 0", readOutput(compilation));
+    assertEquals(CompileDaemon.PONG, request(CompileDaemon.SHUTDOWN).readInt());
+    _server.join(5000);
+    assertFalse(_server.isAlive());
+  }
+
+  public void testIdleTimeout() throws Exception {
+    assertTrue(new File(_dir, CompileDaemon.PORT_FILE).exists());
+    _server.join(5000);
+    assertFalse(_server.isAlive());
+    assertFalse(new File(_dir, CompileDaemon.PORT_FILE).exists());
+  }
+}
@@ -0,0 +1,93 @@
+package scala_maven_executions;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+
+public class MojoLogOutputStreamTest extends TestCase {
+
+  private final List<String> _lines = new ArrayList<String>();
+
+  private MojoLogOutputStream newStream(int maxSameWarnings) {
+    AbstractMojo mojo = new AbstractMojo() {
+      public void execute() {
+      }
+    };
+    mojo.setLog(new SystemStreamLog() {
+      @Override
+      public void info(CharSequence content) {
+        _lines.add("info " + content);
+      }
+
+      @Override
+      public void warn(CharSequence content) {
+        _lines.add("warn " + content);
+      }
+
+      @Override
+      public void error(CharSequence content) {
+        _lines.add("error " + content);
+      }
+    });
+    return new MojoLogOutputStream(mojo, maxSameWarnings);
+  }
+
+  private void write(MojoLogOutputStream out, String... lines) throws Exception {
+    for (String line : lines) {
+      out.write((line + "\n").getBytes("UTF-8"));
+    }
+  }
+
+  public void testRepeatedWarningsAreHidden() throws Exception {
+    MojoLogOutputStream out = newStream(2);
+    for (int i = 1; i <= 4; i++) {
+      write(out,
+        "/p/src/main/scala/A.scala:" + i + ": warning: method x in class B is deprecated",
+        "  new B().x",
+        "          ^"
+      );
+    }
+    write(out,
+      "/p/src/main/scala/A.scala:9: error: not found: value y",
+      "  y",
+      "  ^",
+      "four warnings found",
+      "one error found"
+    );
+    out.close();
+
+    assertEquals(12, _lines.size());
+    assertEquals("warn /p/src/main/scala/A.scala:1: warning: method x in class B is deprecated", _lines.get(0));
+    assertEquals("warn           ^", _lines.get(2));
+    assertEquals("warn /p/src/main/scala/A.scala:2: warning: method x in class B is deprecated", _lines.get(3));
+    assertEquals("error /p/src/main/scala/A.scala:9: error: not found: value y", _lines.get(6));
+    assertEquals("error   ^", _lines.get(8));
+    assertEquals("warn four warnings found", _lines.get(9));
+    assertEquals("error one error found", _lines.get(10));
+    assertEquals("warn 2 more warning(s) not displayed: warning: method x in class B is deprecated", _lines.get(11));
+  }
+
+  public void testEveryWarningDisplayedByDefault() throws Exception {
+    MojoLogOutputStream out = newStream(0);
+    for (int i = 1; i <= 4; i++) {
+      write(out,
+        "/p/src/main/scala/A.scala:" + i + ": warning: method x in class B is deprecated",
+        "  new B().x",
+        "          ^"
+      );
+    }
+    out.close();
+    assertEquals(12, _lines.size());
+  }
+
+  public void testIndexOfIgnoreCase() throws Exception {
+    assertEquals(4, LogProcessorUtils.indexOfIgnoreCase("foo WARNING: bar", "warning:"));
+    assertEquals(0, LogProcessorUtils.indexOfIgnoreCase("Error", "error"));
+    assertEquals(-1, LogProcessorUtils.indexOfIgnoreCase("erro", "error"));
+    assertTrue(LogProcessorUtils.containsIgnoreCase("A.Scala", ".scala"));
+  }
+}
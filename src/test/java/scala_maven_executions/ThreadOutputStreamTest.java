@@ -0,0 +1,60 @@
+package scala_maven_executions;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+
+import junit.framework.TestCase;
+
+public class ThreadOutputStreamTest extends TestCase {
+
+  private PrintStream _out;
+  private PrintStream _err;
+  private final ByteArrayOutputStream _default = new ByteArrayOutputStream();
+
+  @Override
+  protected void setUp() throws Exception {
+    _out = System.out;
+    _err = System.err;
+    System.setOut(new PrintStream(_default, true));
+    System.setErr(new PrintStream(_default, true));
+    ThreadOutputStream.install();
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    System.setOut(_out);
+    System.setErr(_err);
+  }
+
+  public void testRedirectCurrentThread() throws Exception {
+    ByteArrayOutputStream captured = new ByteArrayOutputStream();
+    OutputStream previous = ThreadOutputStream.redirect(captured);
+    assertNull(previous);
+    Thread other = new Thread() {
+      @Override
+      public void run() {
+        // created by the redirected thread, so redirected too
+        System.err.println("from child");
+      }
+    };
+    other.start();
+    other.join();
+    System.out.println("captured");
+    ThreadOutputStream.redirect(previous);
+    System.out.println("not captured");
+
+    Thread unrelated = new Thread() {
+      @Override
+      public void run() {
+        System.out.println("unrelated");
+      }
+    };
+    unrelated.start();
+    unrelated.join();
+
+    String nl = System.getProperty("line.separator");
+    assertEquals("from child" + nl + "captured" + nl, captured.toString());
+    assertEquals("not captured" + nl + "unrelated" + nl, _default.toString());
+  }
+}
@@ -0,0 +1,74 @@
+package scala_maven_executions;
+
+import java.io.File;
+import java.util.Collections;
+
+import junit.framework.TestCase;
+
+import org.apache.maven.execution.DefaultMavenExecutionRequest;
+import org.apache.maven.execution.DefaultMavenExecutionResult;
+import org.apache.maven.execution.MavenExecutionRequest;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.project.MavenProject;
+
+public class ToolClassLoadersTest extends TestCase {
+
+  private final String _cp1 = new File("target/classes").getAbsolutePath();
+  private final String _cp2 = new File("target/test-classes").getAbsolutePath();
+
+  public void testSharedWhenIdle() throws Exception {
+    Object build1 = new Object();
+    ClassLoader cl = ToolClassLoaders.acquire(_cp1, build1, false);
+    // in use: an other run gets its own class loader
+    ClassLoader cl2 = ToolClassLoaders.acquire(_cp1, build1, false);
+    assertNotSame(cl, cl2);
+    ToolClassLoaders.release(cl2);
+    ToolClassLoaders.release(cl);
+    assertSame(cl, ToolClassLoaders.acquire(_cp1, build1, false));
+    ToolClassLoaders.release(cl);
+  }
+
+  public void testSharedByTheSessionsOfTheModules() throws Exception {
+    // with "mvn -T", each module is built with its own clone of the session, sharing the request
+    MavenExecutionRequest request = new DefaultMavenExecutionRequest();
+    MavenSession sessionA = new MavenSession(null, request, new DefaultMavenExecutionResult(), Collections.<MavenProject>emptyList());
+    MavenSession sessionB = new MavenSession(null, request, new DefaultMavenExecutionResult(), Collections.<MavenProject>emptyList());
+    ClassLoader clA = ToolClassLoaders.acquire(_cp1, sessionA.getRequest(), false);
+    ClassLoader clB = ToolClassLoaders.acquire(_cp1, sessionB.getRequest(), false);
+    ToolClassLoaders.release(clA);
+    ToolClassLoaders.release(clB);
+    // neither is closed by the run of the other module
+    assertSame(clB, ToolClassLoaders.acquire(_cp1, sessionA.getRequest(), false));
+    assertSame(clA, ToolClassLoaders.acquire(_cp1, sessionB.getRequest(), false));
+    ToolClassLoaders.release(clA);
+    ToolClassLoaders.release(clB);
+  }
+
+  public void testClosedAtBuildEnd() throws Exception {
+    Object build1 = new Object();
+    ClassLoader cl = ToolClassLoaders.acquire(_cp1, build1, false);
+    ClassLoader kept = ToolClassLoaders.acquire(_cp2, build1, true);
+    ToolClassLoaders.release(kept);
+
+    // the next build closes the idle class loaders of the previous one, except the kept ones
+    Object build2 = new Object();
+    assertSame(kept, ToolClassLoaders.acquire(_cp2, build2, true));
+    ToolClassLoaders.release(kept);
+    ClassLoader cl2 = ToolClassLoaders.acquire(_cp1, build2, false);
+    assertNotSame(cl, cl2);
+    ToolClassLoaders.release(cl2);
+    // still usable by the run of the previous build, closed when released
+    assertNotNull(cl.loadClass(ToolClassLoaders.class.getName()));
+    ToolClassLoaders.release(cl);
+    ClassLoader cl3 = ToolClassLoaders.acquire(_cp1, build2, false);
+    assertSame(cl2, cl3);
+    ToolClassLoaders.release(cl3);
+  }
+
+  public void testMaxSize() throws Exception {
+    for (int i = 0; i < ToolClassLoaders.MAX_SIZE + 2; i++) {
+      ToolClassLoaders.release(ToolClassLoaders.acquire(_cp1 + File.pathSeparator + i, null, false));
+    }
+    assertEquals(ToolClassLoaders.MAX_SIZE, ToolClassLoaders.idleCount());
+  }
+}